@@ -0,0 +1,224 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Stream;
+
+/**
+ * Solves many instances in one JVM, so that they share its warmed-up code.
+ * The instances are the files of a directory, or the lines of a file list
+ * or of standard input, where a line ending in .cnf or .cnf.gz names a
+ * DIMACS file and any other line is a formula.
+ * <p>
+ * Instances are read on a pool of reader threads and solved on a pool of
+ * solving threads, each with a solver and limits of its own. At most twice
+ * as many instances as there are solving threads are read ahead, so a long
+ * list is never held in memory. A line of JSON is written for each instance
+ * as soon as it is solved, in the order they finish, such as
+ * <pre>
+ * {"index":0,"instance":"a.cnf","result":"SAT","ms":12,"decisions":61,"conflicts":40,"propagations":980,"model":["1","-2"]}
+ * </pre>
+ * where result is SAT, UNSAT, UNKNOWN if a limit was reached, or ERROR with
+ * a message instead of the counters. The index is the position of the
+ * instance in the input.
+ **/
+class Batch{
+
+  private static final String[] RESULTS = {"SAT", "UNSAT", "UNKNOWN", "ERROR"};
+  private static final int SAT = 0;
+  private static final int UNSAT = 1;
+  private static final int UNKNOWN = 2;
+  private static final int ERROR = 3;
+
+  // Discards what the solvers print.
+  private static final PrintStream QUIET = new PrintStream(OutputStream.nullOutputStream());
+
+  private final List<String> optList;
+  private final PrintStream out;
+  private final ResultCache cache;
+  private final ExecutorService readers;
+  private final ExecutorService solvers;
+  private final Semaphore ahead;
+  private final AtomicIntegerArray counts = new AtomicIntegerArray(RESULTS.length);
+  private int instances;
+
+  /**
+   * @param workers the number of solving threads.
+   * @param optList the options of Main that select the method, limits and
+   * cache, which all instances share.
+   * @param out where the results are written.
+   **/
+  public Batch(int workers, List<String> optList, PrintStream out) throws IOException{
+    if (workers < 1)
+      throw new IllegalArgumentException("Batch needs at least one worker: " + workers);
+    this.optList = optList;
+    this.out = out;
+    this.cache = Main.cache(optList);
+    this.readers = Executors.newFixedThreadPool(workers);
+    this.solvers = Executors.newFixedThreadPool(workers);
+    this.ahead = new Semaphore(2 * workers);
+  }
+
+  /**
+   * Solves every instance of the source and waits for the last one.
+   *
+   * @param source a directory, a file list, or - for standard input.
+   **/
+  public void run(String source) throws IOException, InterruptedException{
+    long time = System.nanoTime();
+    try {
+      if (source.equals("-")){
+        submitLines(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+      } else if (Files.isDirectory(Paths.get(source))){
+        try (Stream<Path> files = Files.list(Paths.get(source))){
+          Iterator<Path> it = files.filter(Files::isRegularFile).sorted().iterator();
+          while (it.hasNext()){
+            submit(it.next().toString(), true);
+          }
+        }
+      } else {
+        try (BufferedReader lines = Files.newBufferedReader(Paths.get(source))){
+          submitLines(lines);
+        }
+      }
+    } finally {
+      // The readers hand their instances to the solvers, so they are done first.
+      readers.shutdown();
+      readers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      solvers.shutdown();
+      solvers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+    System.err.printf("Batch of %d instances: %d SAT, %d UNSAT, %d UNKNOWN, %d ERROR in %d ms.\n",
+        instances, counts.get(SAT), counts.get(UNSAT), counts.get(UNKNOWN), counts.get(ERROR), (System.nanoTime() - time)/1000000);
+  }
+
+  private void submitLines(BufferedReader lines) throws IOException, InterruptedException{
+    String line;
+    while ((line = lines.readLine()) != null){
+      line = line.trim();
+      // Blank lines and # comments are skipped.
+      if (line.isEmpty() || line.startsWith("#"))
+        continue;
+      submit(line, line.endsWith(".cnf") || line.endsWith(".cnf.gz"));
+    }
+  }
+
+  private void submit(String instance, boolean file) throws InterruptedException{
+    int index = instances++;
+    ahead.acquire();
+    readers.execute(() -> read(index, instance, file));
+  }
+
+  private void read(int index, String instance, boolean file){
+    // The permit passes to the solving task once it is queued.
+    boolean queued = false;
+    try {
+      long time = System.nanoTime();
+      Solver solver = (file) ? new Solver(DimacsReader.read(Paths.get(instance))) : new Solver(new PropositionalFormula(instance));
+      solver.parsed(System.nanoTime() - time);
+      solvers.execute(() -> {
+        try {
+          solve(index, instance, solver);
+        } finally {
+          ahead.release();
+        }
+      });
+      queued = true;
+    } catch (Throwable e){
+      // Errors such as a StackOverflowError on a deeply nested formula only fail this instance.
+      error(index, instance, e);
+    } finally {
+      if (!queued)
+        ahead.release();
+    }
+  }
+
+  private void solve(int index, String instance, Solver solver){
+    int result;
+    try {
+      solver.setOutput(QUIET);
+      solver.setCache(cache);
+      Main.setLimits(solver, optList);
+      if (optList.contains("-pre"))
+        solver.preprocess();
+      result = search(solver);
+    } catch (Throwable e){
+      error(index, instance, e);
+      return;
+    }
+    SolverStatistics statistics = solver.statistics();
+    StringBuilder line = new StringBuilder();
+    line.append("{\"index\":").append(index);
+    line.append(",\"instance\":").append(quote(instance));
+    line.append(",\"result\":\"").append(RESULTS[result]).append('"');
+    line.append(",\"ms\":").append((statistics.parseNanos() + statistics.preprocessNanos() + statistics.searchNanos())/1000000);
+    line.append(",\"decisions\":").append(statistics.decisions());
+    line.append(",\"conflicts\":").append(statistics.conflicts());
+    line.append(",\"propagations\":").append(statistics.propagations());
+    if (result == SAT){
+      line.append(",\"model\":[");
+      List<String> model = solver.model();
+      for (int i = 0; i < model.size(); i++){
+        line.append((i == 0) ? "" : ",").append(quote(model.get(i)));
+      }
+      line.append(']');
+    }
+    line.append('}');
+    write(line, result);
+  }
+
+  // Runs the method selected in the options, cdcl by default.
+  private int search(Solver solver){
+    if (optList.contains("-b") || optList.contains("-bu")){
+      long interpretation = optList.contains("-b") ? solver.bruteForce() : solver.bruteForceUnit();
+      return (interpretation >= 0) ? SAT : (interpretation == Solver.STOPPED) ? UNKNOWN : UNSAT;
+    }
+    int result = optList.contains("-dpll") ? solver.dpll() : solver.cdcl(Main.restartPolicy(optList));
+    return (result > 0) ? SAT : (result == CdclEngine.UNKNOWN) ? UNKNOWN : UNSAT;
+  }
+
+  private void error(int index, String instance, Throwable e){
+    // Some exceptions, such as NoSuchFileException, only give the file name as message.
+    String message = (e.getMessage() == null || e.getMessage().equals(instance)) ? e.toString() : e.getMessage();
+    write(new StringBuilder().append("{\"index\":").append(index)
+        .append(",\"instance\":").append(quote(instance))
+        .append(",\"result\":\"ERROR\",\"message\":").append(quote(message)).append('}'), ERROR);
+  }
+
+  private void write(CharSequence line, int result){
+    counts.incrementAndGet(result);
+    synchronized (out){
+      out.println(line);
+      out.flush();
+    }
+  }
+
+  // A JSON string literal.
+  private static String quote(String s){
+    StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++){
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\'){
+        quoted.append('\\').append(c);
+      } else if (c < ' '){
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+}
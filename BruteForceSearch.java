@@ -0,0 +1,217 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exhaustive search over the assignments of the variables that are not
+ * fixed, from the highest numbered to the lowest, where assignment number
+ * bit i is the value of variable i.
+ * <p>
+ * The assignments are bit-sliced: each variable is a long holding its
+ * value in 64 consecutive assignments, so every clause is evaluated for all
+ * of them at once with bitwise operations. The lowest six free variables
+ * vary within a block, and the others are counted down by a multi-word
+ * counter, one block at a time. The parallel search fixes a prefix of the
+ * highest free variables in each task and splits prefix ranges on a
+ * ForkJoinPool; the first satisfying assignment found stops all tasks.
+ **/
+class BruteForceSearch{
+
+  // LANES[i] has bit j set if bit i of j is set; lane j of a block is the assignment block+j.
+  private static final long[] LANES = {
+    0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+    0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L};
+
+  // Prefix ranges per worker thread, so that idle threads have ranges to steal.
+  private static final int TASKS_PER_THREAD = 64;
+  // Blocks between two checks of the limits.
+  private static final int CHECK_INTERVAL = 1024;
+
+  private final ClauseDatabase clauses;
+  private final int[] free;
+  private final int lanes;
+  // Free variables counted per block, above the lanes.
+  private final int high;
+  private final long valid;
+  // The masks of the fixed variables and the lanes; copied by every search.
+  private final long[] template;
+
+  private final AtomicReference<boolean[]> found = new AtomicReference<>();
+  private SolveLimits limits;
+
+  /**
+   * @param clauses the clauses to satisfy.
+   * @param fixed Propagator.TRUE or FALSE for variables with a fixed value,
+   * UNASSIGNED for the variables to search.
+   **/
+  public BruteForceSearch(ClauseDatabase clauses, byte[] fixed){
+    this.clauses = clauses;
+    int[] free = new int[fixed.length];
+    int frees = 0;
+    this.template = new long[fixed.length];
+    for (int v = 0; v < fixed.length; v++){
+      if (fixed[v] == Propagator.UNASSIGNED){
+        free[frees++] = v;
+      } else {
+        template[v] = (fixed[v] == Propagator.TRUE) ? -1L : 0L;
+      }
+    }
+    this.free = Arrays.copyOf(free, frees);
+    this.lanes = Math.min(frees, LANES.length);
+    for (int i = 0; i < lanes; i++){
+      template[free[i]] = LANES[i];
+    }
+    this.valid = (lanes == LANES.length) ? -1L : (1L << (1 << lanes)) - 1;
+    this.high = frees - lanes;
+  }
+
+  /**
+   * Ends the search, without an assignment, once the time or memory limit
+   * is reached or the limits are interrupted.
+   *
+   * @param limits the limits, started by the caller.
+   **/
+  public void setLimits(SolveLimits limits){
+    this.limits = limits;
+  }
+
+  /**
+   * @return boolean true if the last search ended on a limit.
+   **/
+  public boolean isStopped(){
+    return limits != null && limits.isStopped() && found.get() == null;
+  }
+
+  /**
+   * Searches on the calling thread.
+   *
+   * @return boolean[] the highest numbered satisfying assignment, or null if there is none.
+   * @see #isStopped()
+   **/
+  public boolean[] search(){
+    search(0, 0);
+    return found.get();
+  }
+
+  /**
+   * Searches on all threads of the pool. Any satisfying assignment may be
+   * returned, not necessarily the highest numbered one.
+   *
+   * @param pool the pool to run the tasks on.
+   * @return boolean[] a satisfying assignment, or null if there is none.
+   **/
+  public boolean[] search(ForkJoinPool pool){
+    int split = 0;
+    while (split < high && split < 62 && (1L << split) < (long) pool.getParallelism() * TASKS_PER_THREAD){
+      split++;
+    }
+    pool.invoke(new Range(split, 0, 1L << split));
+    return found.get();
+  }
+
+  /**
+   * The assignment number of an assignment, or its low 63 bits if there
+   * are more variables.
+   **/
+  public static long number(boolean[] interpretation){
+    long number = 0;
+    for (int v = 0; v < interpretation.length && v < 63; v++){
+      if (interpretation[v]){
+        number |= 1L << v;
+      }
+    }
+    return number;
+  }
+
+  // Prefixes from (inclusive) to to (exclusive) of the split highest free variables.
+  private class Range extends RecursiveAction{
+
+    private static final long serialVersionUID = 1L;
+
+    private final int split;
+    private final long from;
+    private final long to;
+
+    Range(int split, long from, long to){
+      this.split = split;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute(){
+      if (found.get() != null || (limits != null && limits.isStopped())){
+        return;
+      }
+      if (to - from == 1){
+        search(split, from);
+        return;
+      }
+      long middle = from + (to - from) / 2;
+      // The upper half is searched first, by this thread.
+      invokeAll(new Range(split, middle, to), new Range(split, from, middle));
+    }
+
+  }
+
+  /**
+   * Counts down all blocks whose split highest free variables are the
+   * prefix, until a satisfying assignment is found by this or another
+   * search.
+   **/
+  private void search(int split, long prefix){
+    long[] masks = template.clone();
+    for (int i = 0; i < split; i++){
+      masks[free[lanes + high - split + i]] = -((prefix >>> i) & 1L);
+    }
+    int counted = high - split;
+    long[] counter = new long[(counted + 63) / 64];
+    Arrays.fill(counter, -1L);
+    if (counted % 64 != 0){
+      counter[counter.length - 1] = (1L << (counted % 64)) - 1;
+    }
+
+    int[] arena = clauses.arena();
+    int blocks = 0;
+    do {
+      if (limits != null && ++blocks % CHECK_INTERVAL == 0 && limits.exceeded(null)){
+        return;
+      }
+      for (int i = 0; i < counted; i++){
+        masks[free[lanes + i]] = -((counter[i >>> 6] >>> i) & 1L);
+      }
+      long satisfied = valid;
+      for (int c = 0; c < clauses.size() && satisfied != 0; c++){
+        long clause = 0;
+        int end = clauses.offset(c) + clauses.length(c);
+        for (int i = clauses.offset(c); i < end; i++){
+          long mask = masks[ClauseDatabase.variable(arena[i])];
+          clause |= ClauseDatabase.isNegated(arena[i]) ? ~mask : mask;
+        }
+        satisfied &= clause;
+      }
+      if (satisfied != 0){
+        // The highest lane is the highest numbered assignment of the block.
+        int lane = 63 - Long.numberOfLeadingZeros(satisfied);
+        boolean[] interpretation = new boolean[masks.length];
+        for (int v = 0; v < masks.length; v++){
+          interpretation[v] = ((masks[v] >>> lane) & 1L) != 0;
+        }
+        found.compareAndSet(null, interpretation);
+        return;
+      }
+    } while (found.get() == null && decrement(counter));
+  }
+
+  // Subtracts one from the multi-word counter, or returns false if it is already zero.
+  private static boolean decrement(long[] counter){
+    for (int i = 0; i < counter.length; i++){
+      if (counter[i]-- != 0){
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,728 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Conflict-driven clause learning on top of the watched-literal propagator.
+ * <p>
+ * Every conflict is analysed on the implication graph until only one literal
+ * of the conflict level is left (the first unique implication point). The
+ * learned clause is minimized by removing literals implied by the others,
+ * added to the clause database, and the search jumps back to the second
+ * highest level in the clause, where the clause asserts its UIP literal.
+ * The restart policy is consulted after every conflict.
+ * <p>
+ * Learned clauses are kept in three tiers by LBD. Core clauses (LBD at most
+ * 2) are kept for good, tier 2 clauses (LBD at most 6) as long as they take
+ * part in conflicts, and the worst half of the remaining local clauses by
+ * activity is removed periodically, or whenever the clause memory exceeds
+ * its budget.
+ *
+ * @see https://en.wikipedia.org/wiki/Conflict-driven_clause_learning
+ **/
+class CdclEngine{
+
+  public static final int SATISFIABLE = 1;
+  public static final int UNSATISFIABLE = -1;
+  public static final int UNKNOWN = 0;
+
+  /**
+   * Conflicts between calls to SolverListener.progress.
+   **/
+  public static final long PROGRESS_INTERVAL = 10000;
+
+  private static final int CORE_LBD = 2;
+  private static final int TIER2_LBD = 6;
+  private static final int FIRST_REDUCE = 2000;
+  private static final int REDUCE_INCREMENT = 300;
+  private static final double CLAUSE_DECAY = 0.999;
+  private static final float RESCALE_LIMIT = 1e20f;
+
+  private final ClauseDatabase clauses;
+  private final Propagator propagator;
+  private final VariableOrder order;
+  private int variables;
+  private RestartPolicy restarts = RestartPolicy.named("glucose");
+
+  private long nextReduce = FIRST_REDUCE;
+  private int reduceInterval = FIRST_REDUCE;
+  private float clauseIncrement = 1;
+  private long maxClauseMemory = Long.MAX_VALUE;
+  private int learntsAtMemoryReduce;
+  private volatile boolean stopped;
+  private long conflictBudget = Long.MAX_VALUE;
+  // Set once a conflict on level 0 proves the clauses unsatisfiable.
+  private boolean unsatisfiable;
+  private ClauseExchange.Port exchange;
+  private final SolverStatistics statistics = new SolverStatistics();
+  private SolverListener listener;
+  private SolveLimits limits;
+  private ProofWriter proof;
+  private long searchNanos;
+  // Start of the running call to solve(), or 0.
+  private long searchStart;
+  // The assumptions responsible for the last UNSATISFIABLE answer.
+  private int[] failed = new int[0];
+
+  // Scratch space for conflict analysis.
+  private boolean[] seen;
+  private int[] learnt;
+  private int learntSize;
+  private int[] stack;
+  private int[] toClear;
+  private int toClearSize;
+  private int[] levelStamps;
+  private int stamp;
+
+  /**
+   * The engine works on its own copy of the clause database, as learned
+   * clauses are added to it during the search.
+   *
+   * @param clauses the clauses to solve.
+   **/
+  public CdclEngine(ClauseDatabase clauses){
+    this.clauses = clauses.copy();
+    this.propagator = new Propagator(this.clauses);
+    this.variables = this.clauses.variables();
+    this.order = new VariableOrder(variables);
+    this.propagator.setVariableOrder(order);
+    this.seen = new boolean[variables];
+    this.learnt = new int[variables + 1];
+    this.stack = new int[variables + 1];
+    this.toClear = new int[variables + 1];
+    this.levelStamps = new int[variables + 1];
+  }
+
+  /**
+   * Adds a clause between calls to solve(), keeping learned clauses,
+   * activities and saved phases. Variables beyond the current ones are
+   * added. The search goes back to level 0, so the model of the previous
+   * call is lost.
+   *
+   * @param literals the literals of the clause.
+   **/
+  public void addClause(int... literals){
+    propagator.backtrack(0);
+    ensureVariables(literals);
+    int[] clause = literals.clone();
+    Arrays.sort(clause);
+    int size = 0;
+    for (int literal : clause){
+      byte value = propagator.value(literal);
+      // Level 0 assignments are permanent, so they simplify the clause for good.
+      if (value == Propagator.TRUE){
+        return;
+      }
+      if (value == Propagator.FALSE || (size > 0 && clause[size - 1] == literal)){
+        continue;
+      }
+      // A literal and its negation are adjacent once sorted.
+      if (size > 0 && clause[size - 1] == ClauseDatabase.negate(literal)){
+        return;
+      }
+      clause[size++] = literal;
+    }
+    if (size == 0){
+      unsatisfiable = true;
+    } else if (size == 1){
+      propagator.assign(clause[0]);
+    } else {
+      propagator.attach(clauses.addClause(clause, 0, size));
+    }
+  }
+
+  // Grows every per-variable array for the variables of the literals.
+  private void ensureVariables(int[] literals){
+    int n = variables;
+    for (int literal : literals){
+      n = Math.max(n, ClauseDatabase.variable(literal) + 1);
+    }
+    if (n == variables){
+      return;
+    }
+    variables = n;
+    clauses.ensureVariables(n);
+    propagator.ensureVariables(n);
+    order.ensureVariables(n);
+    seen = Arrays.copyOf(seen, n);
+    learnt = Arrays.copyOf(learnt, n + 1);
+    stack = Arrays.copyOf(stack, n + 1);
+    toClear = Arrays.copyOf(toClear, n + 1);
+    if (levelStamps.length < n + 1){
+      levelStamps = Arrays.copyOf(levelStamps, n + 1);
+    }
+  }
+
+  public void setRestartPolicy(RestartPolicy restarts){
+    this.restarts = restarts;
+  }
+
+  /**
+   * Sets the polarity variables are decided with before they get a saved
+   * phase.
+   *
+   * @param negated true to decide variables false first.
+   **/
+  public void setInitialPhase(boolean negated){
+    order.setInitialPhase(negated);
+  }
+
+  /**
+   * Breaks the ties of the initial branching order randomly, so that
+   * engines with different seeds search different parts of the space.
+   *
+   * @param seed the seed of the random order.
+   **/
+  public void setSeed(long seed){
+    order.perturb(new Random(seed));
+  }
+
+  /**
+   * Limits the number of conflicts of each call to solve(); a call that
+   * reaches the limit returns UNKNOWN. Learned clauses are kept, so a later
+   * call continues with them.
+   *
+   * @param conflicts the conflicts allowed per call.
+   **/
+  public void setConflictBudget(long conflicts){
+    this.conflictBudget = conflicts;
+  }
+
+  /**
+   * Shares short learned clauses with other engines on the same clauses.
+   * Clauses are exported as they are learned, and imported whenever the
+   * search is back on level 0.
+   *
+   * @param port this engine's end of the exchange, or null for none.
+   **/
+  public void setClauseExchange(ClauseExchange.Port port){
+    this.exchange = port;
+  }
+
+  /**
+   * Reports progress and the end of every call to solve() to the listener,
+   * on the thread that runs the engine.
+   *
+   * @param listener the listener, or null for none.
+   **/
+  public void setListener(SolverListener listener){
+    this.listener = listener;
+  }
+
+  /**
+   * The counters of all calls to solve() so far.
+   **/
+  public SolverStatistics statistics(){
+    statistics.propagations = propagator.propagations();
+    statistics.searchNanos = searchNanos + ((searchStart != 0) ? System.nanoTime() - searchStart : 0);
+    return statistics;
+  }
+
+  /**
+   * Makes solve() return UNKNOWN once a limit is reached. The limits are
+   * started by their owner, so engines can share them.
+   *
+   * @param limits the limits, or null for none.
+   **/
+  public void setLimits(SolveLimits limits){
+    this.limits = limits;
+  }
+
+  /**
+   * Makes solve() return UNKNOWN as soon as possible. Can be called from
+   * any thread.
+   **/
+  public void stop(){
+    stopped = true;
+  }
+
+  /**
+   * Logs every learned and removed clause, and the empty clause once the
+   * clauses are found unsatisfiable, so that the answer can be checked.
+   * Clauses imported from other engines or added between calls are not
+   * logged, so the proof only holds for an engine on its own.
+   *
+   * @param proof the proof, or null for none.
+   **/
+  public void setProof(ProofWriter proof){
+    this.proof = proof;
+  }
+
+  /**
+   * Sets the number of bytes the clause database may allocate before learned
+   * clauses are removed outside of the regular schedule. Core clauses and
+   * the original clauses are always kept, so the budget can be exceeded if
+   * they alone do not fit.
+   *
+   * @param bytes the clause memory budget.
+   **/
+  public void setMaxClauseMemory(long bytes){
+    this.maxClauseMemory = bytes;
+  }
+
+  /**
+   * Searches for a satisfying assignment.
+   *
+   * @return int SATISFIABLE, UNSATISFIABLE, or UNKNOWN if stopped.
+   **/
+  public int solve(){
+    return solve(new int[0]);
+  }
+
+  /**
+   * Searches for a satisfying assignment in which all assumptions are true.
+   * The assumptions are decided first, one per decision level, so clauses
+   * learned under them hold without them and are kept for later calls.
+   *
+   * @param assumptions literals that must be true.
+   * @return int SATISFIABLE, UNSATISFIABLE if there is no such assignment,
+   * or UNKNOWN if stopped or out of conflict budget.
+   * @see #failedAssumptions()
+   **/
+  public int solve(int... assumptions){
+    SolverEvents.Search event = new SolverEvents.Search();
+    event.begin();
+    searchStart = System.nanoTime();
+    int result = search(assumptions);
+    searchNanos += System.nanoTime() - searchStart;
+    searchStart = 0;
+    if (event.shouldCommit()){
+      event.set(result, statistics());
+      event.commit();
+    }
+    if (listener != null){
+      listener.searchFinished(result, statistics());
+    }
+    return result;
+  }
+
+  private int search(int[] assumptions){
+    failed = new int[0];
+    if (propagator.isInconsistent() || unsatisfiable){
+      return refuted();
+    }
+    propagator.backtrack(0);
+    ensureVariables(assumptions);
+    long conflictLimit = (conflictBudget == Long.MAX_VALUE) ? Long.MAX_VALUE : statistics.conflicts + conflictBudget;
+    while (true){
+      statistics.propagations = propagator.propagations();
+      if (stopped || (limits != null && limits.exceeded(statistics))){
+        propagator.backtrack(0);
+        return UNKNOWN;
+      }
+      int conflict = propagator.propagate();
+      if (conflict != Propagator.NO_CONFLICT){
+        if (propagator.decisionLevel() == 0){
+          return refuted();
+        }
+        statistics.conflicts++;
+        statistics.maxTrail = Math.max(statistics.maxTrail, propagator.trailSize());
+        if (statistics.conflicts % PROGRESS_INTERVAL == 0){
+          progress();
+        }
+        int level = analyze(conflict);
+        int lbd = lbd(learnt, 0, learntSize);
+        restarts.conflict(lbd, propagator.trailSize());
+        propagator.backtrack(level);
+        learn(lbd);
+        order.decay();
+        clauseIncrement /= CLAUSE_DECAY;
+        if (statistics.conflicts >= nextReduce){
+          reduceInterval += REDUCE_INCREMENT;
+          nextReduce = statistics.conflicts + reduceInterval;
+          reduce(false);
+        } else if (clauses.memory() > maxClauseMemory && clauses.learnts() > 2 * learntsAtMemoryReduce){
+          reduce(true);
+          learntsAtMemoryReduce = clauses.learnts();
+        }
+        if (statistics.conflicts >= conflictLimit){
+          propagator.backtrack(0);
+          return UNKNOWN;
+        }
+        continue;
+      }
+      if (restarts.shouldRestart()){
+        propagator.backtrack(0);
+        restarts.restarted();
+        statistics.restarts++;
+      }
+      if (exchange != null && propagator.decisionLevel() == 0){
+        boolean assigned = importClauses();
+        if (unsatisfiable){
+          return UNSATISFIABLE;
+        }
+        if (assigned){
+          continue;
+        }
+      }
+      if (propagator.decisionLevel() < assumptions.length){
+        int assumption = assumptions[propagator.decisionLevel()];
+        byte value = propagator.value(assumption);
+        if (value == Propagator.FALSE){
+          failed = analyzeFinal(assumption);
+          propagator.backtrack(0);
+          return UNSATISFIABLE;
+        }
+        if (value == Propagator.TRUE){
+          propagator.newDecisionLevel();
+        } else {
+          propagator.decide(assumption);
+          statistics.decisions++;
+        }
+        continue;
+      }
+      int literal = pickBranchingLiteral();
+      if (literal < 0){
+        return SATISFIABLE;
+      }
+      propagator.decide(literal);
+      statistics.decisions++;
+    }
+  }
+
+  // Marks the clauses unsatisfiable, which ends the proof with the empty clause.
+  private int refuted(){
+    if (proof != null && !unsatisfiable){
+      proof.add(learnt, 0, 0);
+    }
+    unsatisfiable = true;
+    return UNSATISFIABLE;
+  }
+
+  private void progress(){
+    SolverEvents.Progress event = new SolverEvents.Progress();
+    if (event.isEnabled()){
+      SolverStatistics current = statistics();
+      event.decisions = current.decisions;
+      event.propagations = current.propagations;
+      event.conflicts = current.conflicts;
+      event.restarts = current.restarts;
+      event.learnedClauses = current.learnedClauses;
+      event.trail = propagator.trailSize();
+      event.commit();
+    }
+    if (listener != null){
+      listener.progress(statistics());
+    }
+  }
+
+  public byte[] model(){
+    return propagator.model();
+  }
+
+  /**
+   * The assumptions of the last call to solve() that together made it
+   * UNSATISFIABLE. Empty if the clauses are unsatisfiable without
+   * assumptions, or if the last call did not return UNSATISFIABLE.
+   *
+   * @return int[] a subset of the assumptions.
+   **/
+  public int[] failedAssumptions(){
+    return failed.clone();
+  }
+
+  /**
+   * Collects the assumptions that imply the negation of a false
+   * assumption, by following the reasons of its implication graph back to
+   * the decisions, which are all assumptions at this point.
+   **/
+  private int[] analyzeFinal(int assumption){
+    int[] core = new int[propagator.decisionLevel() + 1];
+    int size = 0;
+    core[size++] = assumption;
+    int[] arena = clauses.arena();
+    seen[ClauseDatabase.variable(assumption)] = true;
+    for (int i = propagator.trailSize() - 1; i >= 0; i--){
+      int literal = propagator.trail(i);
+      int v = ClauseDatabase.variable(literal);
+      if (propagator.level(v) == 0){
+        break;
+      }
+      if (!seen[v]){
+        continue;
+      }
+      seen[v] = false;
+      int reason = propagator.reason(v);
+      if (reason == Propagator.NO_REASON){
+        core[size++] = literal;
+        continue;
+      }
+      int end = clauses.offset(reason) + clauses.length(reason);
+      for (int j = clauses.offset(reason); j < end; j++){
+        int u = ClauseDatabase.variable(arena[j]);
+        if (u != v && propagator.level(u) > 0){
+          seen[u] = true;
+        }
+      }
+    }
+    // The assumption is false on level 0.
+    seen[ClauseDatabase.variable(assumption)] = false;
+    return Arrays.copyOf(core, size);
+  }
+
+  // The unassigned variable with the highest activity, in its saved phase, or -1 if all are assigned.
+  private int pickBranchingLiteral(){
+    int v;
+    while ((v = order.removeMax()) >= 0){
+      if (propagator.value(ClauseDatabase.literal(v, false)) == Propagator.UNASSIGNED){
+        return order.literal(v);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Derives the 1-UIP clause of a conflict into learnt[0..learntSize-1],
+   * with the asserting literal first and a literal of the backjump level
+   * second.
+   *
+   * @param conflict index of the falsified clause.
+   * @return int the level to backjump to.
+   **/
+  private int analyze(int conflict){
+    int[] arena = clauses.arena();
+    int level = propagator.decisionLevel();
+    int pathCount = 0;
+    int uip = -1;
+    int index = propagator.trailSize() - 1;
+    learntSize = 1;
+
+    int clause = conflict;
+    do {
+      if (clauses.isLearnt(clause)){
+        used(clause);
+      }
+      int end = clauses.offset(clause) + clauses.length(clause);
+      for (int i = clauses.offset(clause); i < end; i++){
+        int literal = arena[i];
+        int v = ClauseDatabase.variable(literal);
+        if (uip >= 0 && v == ClauseDatabase.variable(uip)){
+          continue;
+        }
+        if (seen[v] || propagator.level(v) == 0){
+          continue;
+        }
+        seen[v] = true;
+        order.bump(v);
+        if (propagator.level(v) >= level){
+          pathCount++;
+        } else {
+          learnt[learntSize++] = literal;
+        }
+      }
+      // The next literal of the conflict level to resolve on.
+      while (!seen[ClauseDatabase.variable(propagator.trail(index--))]);
+      uip = propagator.trail(index + 1);
+      clause = propagator.reason(ClauseDatabase.variable(uip));
+      seen[ClauseDatabase.variable(uip)] = false;
+      pathCount--;
+    } while (pathCount > 0);
+    learnt[0] = ClauseDatabase.negate(uip);
+
+    minimize();
+
+    // Find the backjump level and move its literal into the second watch.
+    int backjump = 0;
+    for (int i = 1; i < learntSize; i++){
+      int l = propagator.level(ClauseDatabase.variable(learnt[i]));
+      if (l > backjump){
+        backjump = l;
+        int swap = learnt[1];
+        learnt[1] = learnt[i];
+        learnt[i] = swap;
+      }
+    }
+    return backjump;
+  }
+
+  /**
+   * Removes the literals of the learned clause that are implied by the
+   * other literals through their reason clauses (recursive minimization).
+   * Clears the seen flags set during analysis.
+   **/
+  private void minimize(){
+    int levels = 0;
+    for (int i = 1; i < learntSize; i++){
+      levels |= abstractLevel(ClauseDatabase.variable(learnt[i]));
+    }
+    // The literals of the clause are cleared through toClear, as they are overwritten when kept literals move down.
+    System.arraycopy(learnt, 0, toClear, 0, learntSize);
+    toClearSize = learntSize;
+    int kept = 1;
+    for (int i = 1; i < learntSize; i++){
+      int v = ClauseDatabase.variable(learnt[i]);
+      if (propagator.reason(v) == Propagator.NO_REASON || !isRedundant(learnt[i], levels)){
+        learnt[kept++] = learnt[i];
+      }
+    }
+    for (int i = 0; i < toClearSize; i++){
+      seen[ClauseDatabase.variable(toClear[i])] = false;
+    }
+    learntSize = kept;
+  }
+
+  // True if the literal is implied by literals already in the learned clause.
+  private boolean isRedundant(int literal, int levels){
+    int[] arena = clauses.arena();
+    int stackSize = 0;
+    int top = toClearSize;
+    stack[stackSize++] = literal;
+    while (stackSize > 0){
+      int q = stack[--stackSize];
+      int reason = propagator.reason(ClauseDatabase.variable(q));
+      int end = clauses.offset(reason) + clauses.length(reason);
+      for (int i = clauses.offset(reason); i < end; i++){
+        int p = arena[i];
+        int v = ClauseDatabase.variable(p);
+        if (v == ClauseDatabase.variable(q) || seen[v] || propagator.level(v) == 0){
+          continue;
+        }
+        if (propagator.reason(v) != Propagator.NO_REASON && (abstractLevel(v) & levels) != 0){
+          seen[v] = true;
+          stack[stackSize++] = p;
+          toClear[toClearSize++] = p;
+        } else {
+          for (int j = top; j < toClearSize; j++){
+            seen[ClauseDatabase.variable(toClear[j])] = false;
+          }
+          toClearSize = top;
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  // Bumps a learned clause taking part in conflict analysis, and lowers its LBD if it has improved.
+  private void used(int clause){
+    clauses.markUsed(clause);
+    float activity = clauses.activity(clause) + clauseIncrement;
+    clauses.setActivity(clause, activity);
+    if (activity > RESCALE_LIMIT){
+      for (int c = 0; c < clauses.size(); c++){
+        clauses.setActivity(c, clauses.activity(c) / RESCALE_LIMIT);
+      }
+      clauseIncrement /= RESCALE_LIMIT;
+    }
+    if (clauses.lbd(clause) > CORE_LBD){
+      int lbd = lbd(clauses.arena(), clauses.offset(clause), clauses.length(clause));
+      if (lbd < clauses.lbd(clause)){
+        clauses.setLbd(clause, lbd);
+      }
+    }
+  }
+
+  // Number of distinct decision levels among the literals.
+  private int lbd(int[] literals, int from, int length){
+    stamp++;
+    int lbd = 0;
+    for (int i = from; i < from + length; i++){
+      int level = propagator.level(ClauseDatabase.variable(literals[i]));
+      if (level >= levelStamps.length){
+        // Assumptions that were already true open levels without a variable.
+        levelStamps = Arrays.copyOf(levelStamps, 2 * level + 1);
+      }
+      if (levelStamps[level] != stamp){
+        levelStamps[level] = stamp;
+        lbd++;
+      }
+    }
+    return lbd;
+  }
+
+  private int abstractLevel(int variable){
+    return 1 << (propagator.level(variable) & 31);
+  }
+
+  // Adds the learned clause and asserts its first literal on the backjump level.
+  private void learn(int lbd){
+    int clause = clauses.addLearntClause(learnt, 0, learntSize, lbd);
+    clauses.setActivity(clause, clauseIncrement);
+    propagator.attach(clause);
+    statistics.learnedClauses++;
+    if (proof != null){
+      proof.add(learnt, 0, learntSize);
+    }
+    if (learntSize > 1){
+      propagator.assign(learnt[0], clause);
+    }
+    if (exchange != null){
+      exchange.export(learnt, learntSize, lbd);
+    }
+  }
+
+  /**
+   * Adds the clauses exported by other engines, on level 0. Literals false
+   * on level 0 are left out, and clauses true on level 0 are skipped.
+   *
+   * @return boolean true if units were assigned and need propagation.
+   **/
+  private boolean importClauses(){
+    boolean[] assigned = new boolean[1];
+    exchange.importClauses(imported -> {
+      if (unsatisfiable){
+        return;
+      }
+      int size = 0;
+      for (int i = 1; i < imported.length; i++){
+        byte value = propagator.value(imported[i]);
+        if (value == Propagator.TRUE){
+          return;
+        }
+        if (value == Propagator.UNASSIGNED){
+          learnt[size++] = imported[i];
+        }
+      }
+      statistics.importedClauses++;
+      if (size == 0){
+        unsatisfiable = true;
+      } else if (size == 1){
+        propagator.assign(learnt[0]);
+        assigned[0] = true;
+      } else {
+        int clause = clauses.addLearntClause(learnt, 0, size, Math.min(imported[0], size));
+        clauses.setActivity(clause, clauseIncrement);
+        propagator.attach(clause);
+      }
+    });
+    return assigned[0];
+  }
+
+  /**
+   * Removes the worst half of the local learned clauses by activity, and
+   * compacts the clause database. Tier 2 clauses that have not been used
+   * since the last reduction count as local, and so do all tier 2 clauses
+   * when the reduction is aggressive. Core clauses and reasons of current
+   * assignments are always kept.
+   *
+   * @param aggressive true if the clause memory budget is exceeded.
+   **/
+  private void reduce(boolean aggressive){
+    long[] candidates = new long[clauses.learnts()];
+    int count = 0;
+    for (int c = 0; c < clauses.size(); c++){
+      if (!clauses.isLearnt(c) || clauses.isDeleted(c)){
+        continue;
+      }
+      boolean used = clauses.clearUsed(c);
+      if (clauses.lbd(c) <= CORE_LBD || propagator.isLocked(c)){
+        continue;
+      }
+      if (clauses.lbd(c) <= TIER2_LBD && used && !aggressive){
+        continue;
+      }
+      // Non-negative floats order the same way as their bits.
+      candidates[count++] = ((long) Float.floatToIntBits(clauses.activity(c)) << 32) | c;
+    }
+    Arrays.sort(candidates, 0, count);
+    for (int i = 0; i < count / 2; i++){
+      int clause = (int) candidates[i];
+      if (proof != null){
+        proof.delete(clauses.arena(), clauses.offset(clause), clauses.length(clause));
+      }
+      clauses.remove(clause);
+    }
+    propagator.relocate(clauses.compact());
+    statistics.reductions++;
+  }
+
+}
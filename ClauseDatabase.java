@@ -0,0 +1,303 @@
+import java.util.Arrays;
+
+/**
+ * Clause store shared by all solver engines.
+ * <p>
+ * Literals are encoded as ints, 2*variable+sign, where the sign bit is set
+ * for negated literals. The literals of all clauses are kept back to back in
+ * one flat arena, and each clause is addressed by its index into the offset
+ * and length tables. Clauses are never re-parsed once they are stored.
+ * <p>
+ * Learned clauses carry their literal block distance (LBD) and an activity.
+ * Removed clauses stay in the arena until it is compacted, which renumbers
+ * the remaining clauses.
+ **/
+class ClauseDatabase{
+
+  private static final byte LEARNT = 1;
+  private static final byte DELETED = 2;
+  private static final byte USED = 4;
+
+  // Bytes of header kept per clause: offset, length, lbd, activity and flags.
+  private static final int HEADER_BYTES = 17;
+
+  private int[] arena;
+  private int[] offsets;
+  private int[] lengths;
+  private int[] lbds;
+  private float[] activities;
+  private byte[] flags;
+  private int clauses;
+  private int top;
+  private int wasted;
+  private int learnts;
+  private int variables;
+
+  public ClauseDatabase(){
+    this(16, 64);
+  }
+
+  public ClauseDatabase(int expectedClauses, int expectedLiterals){
+    this.arena = new int[Math.max(expectedLiterals, 4)];
+    allocateHeaders(Math.max(expectedClauses, 4));
+  }
+
+  private void allocateHeaders(int capacity){
+    this.offsets = new int[capacity];
+    this.lengths = new int[capacity];
+    this.lbds = new int[capacity];
+    this.activities = new float[capacity];
+    this.flags = new byte[capacity];
+  }
+
+  private void resizeHeaders(int capacity){
+    offsets = Arrays.copyOf(offsets, capacity);
+    lengths = Arrays.copyOf(lengths, capacity);
+    lbds = Arrays.copyOf(lbds, capacity);
+    activities = Arrays.copyOf(activities, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+  }
+
+  /**
+   * Copies the clause database, so that engines adding or reordering
+   * clauses do not affect the original.
+   *
+   * @return ClauseDatabase a copy holding the same clauses.
+   **/
+  public ClauseDatabase copy(){
+    ClauseDatabase copy = new ClauseDatabase(clauses, top);
+    System.arraycopy(arena, 0, copy.arena, 0, top);
+    System.arraycopy(offsets, 0, copy.offsets, 0, clauses);
+    System.arraycopy(lengths, 0, copy.lengths, 0, clauses);
+    System.arraycopy(lbds, 0, copy.lbds, 0, clauses);
+    System.arraycopy(activities, 0, copy.activities, 0, clauses);
+    System.arraycopy(flags, 0, copy.flags, 0, clauses);
+    copy.clauses = clauses;
+    copy.top = top;
+    copy.wasted = wasted;
+    copy.learnts = learnts;
+    copy.variables = variables;
+    return copy;
+  }
+
+  public static int literal(int variable, boolean negated){
+    return (variable << 1) | (negated ? 1 : 0);
+  }
+
+  public static int variable(int literal){
+    return literal >> 1;
+  }
+
+  public static boolean isNegated(int literal){
+    return (literal & 1) != 0;
+  }
+
+  public static int negate(int literal){
+    return literal ^ 1;
+  }
+
+  /**
+   * Appends a clause to the store. The literals are copied into the arena,
+   * so the supplied array can be reused by the caller.
+   *
+   * @param literals array holding the encoded literals of the clause.
+   * @param from index of the first literal in the array.
+   * @param length number of literals in the clause.
+   * @return int index of the new clause.
+   **/
+  public int addClause(int[] literals, int from, int length){
+    if (clauses == offsets.length){
+      resizeHeaders(clauses * 2);
+    }
+    if (top + length > arena.length){
+      arena = Arrays.copyOf(arena, Math.max(arena.length * 2, top + length));
+    }
+    System.arraycopy(literals, from, arena, top, length);
+    for (int i = from; i < from + length; i++){
+      ensureVariables(variable(literals[i]) + 1);
+    }
+    offsets[clauses] = top;
+    lengths[clauses] = length;
+    lbds[clauses] = 0;
+    activities[clauses] = 0;
+    flags[clauses] = 0;
+    top += length;
+    return clauses++;
+  }
+
+  public int addClause(int... literals){
+    return addClause(literals, 0, literals.length);
+  }
+
+  /**
+   * Appends a learned clause, which can later be removed again.
+   *
+   * @param literals array holding the encoded literals of the clause.
+   * @param from index of the first literal in the array.
+   * @param length number of literals in the clause.
+   * @param lbd number of distinct decision levels in the clause when learned.
+   * @return int index of the new clause.
+   **/
+  public int addLearntClause(int[] literals, int from, int length, int lbd){
+    int clause = addClause(literals, from, length);
+    flags[clause] = LEARNT;
+    lbds[clause] = lbd;
+    learnts++;
+    return clause;
+  }
+
+  public void ensureVariables(int n){
+    if (n > variables){
+      variables = n;
+    }
+  }
+
+  public int size(){
+    return clauses;
+  }
+
+  public int variables(){
+    return variables;
+  }
+
+  public int learnts(){
+    return learnts;
+  }
+
+  public int offset(int clause){
+    return offsets[clause];
+  }
+
+  public int length(int clause){
+    return lengths[clause];
+  }
+
+  public int literal(int clause, int index){
+    return arena[offsets[clause] + index];
+  }
+
+  /**
+   * Gives direct access to the literal arena for hot loops. The array is
+   * replaced when the arena grows or is compacted, so it must be fetched
+   * again after clauses have been added.
+   *
+   * @return int[] the arena holding the literals of all clauses.
+   **/
+  public int[] arena(){
+    return arena;
+  }
+
+  public int[] clause(int clause){
+    return Arrays.copyOfRange(arena, offsets[clause], offsets[clause] + lengths[clause]);
+  }
+
+  public boolean isLearnt(int clause){
+    return (flags[clause] & LEARNT) != 0;
+  }
+
+  public boolean isDeleted(int clause){
+    return (flags[clause] & DELETED) != 0;
+  }
+
+  public int lbd(int clause){
+    return lbds[clause];
+  }
+
+  public void setLbd(int clause, int lbd){
+    lbds[clause] = lbd;
+  }
+
+  public float activity(int clause){
+    return activities[clause];
+  }
+
+  public void setActivity(int clause, float activity){
+    activities[clause] = activity;
+  }
+
+  /**
+   * Marks a clause as used in conflict analysis since the last reduction.
+   **/
+  public void markUsed(int clause){
+    flags[clause] |= USED;
+  }
+
+  /**
+   * Clears the used mark of a clause.
+   *
+   * @return boolean True if the clause was marked as used.
+   **/
+  public boolean clearUsed(int clause){
+    boolean used = (flags[clause] & USED) != 0;
+    flags[clause] &= ~USED;
+    return used;
+  }
+
+  /**
+   * Marks a clause as removed. Its literals stay in the arena, and its index
+   * stays valid, until the database is compacted.
+   **/
+  public void remove(int clause){
+    if (isDeleted(clause)){
+      return;
+    }
+    if (isLearnt(clause)){
+      learnts--;
+    }
+    flags[clause] |= DELETED;
+    wasted += lengths[clause];
+  }
+
+  /**
+   * Number of arena slots held by removed clauses.
+   **/
+  public int wasted(){
+    return wasted;
+  }
+
+  /**
+   * Approximate number of bytes allocated for clauses.
+   **/
+  public long memory(){
+    return 4L * arena.length + (long) HEADER_BYTES * offsets.length;
+  }
+
+  /**
+   * Drops removed clauses, moving the remaining clauses down in the arena
+   * and in the header tables, and trims the arrays to the space in use.
+   * Clause indices change; the returned map gives the new index of every
+   * old clause.
+   *
+   * @return int[] new index of every old clause, or -1 if it was removed.
+   **/
+  public int[] compact(){
+    int[] map = new int[clauses];
+    int next = 0;
+    int nextTop = 0;
+    for (int c = 0; c < clauses; c++){
+      if (isDeleted(c)){
+        map[c] = -1;
+        continue;
+      }
+      System.arraycopy(arena, offsets[c], arena, nextTop, lengths[c]);
+      offsets[next] = nextTop;
+      lengths[next] = lengths[c];
+      lbds[next] = lbds[c];
+      activities[next] = activities[c];
+      flags[next] = flags[c];
+      nextTop += lengths[c];
+      map[c] = next++;
+    }
+    clauses = next;
+    top = nextTop;
+    wasted = 0;
+    if (arena.length > 2 * top){
+      arena = Arrays.copyOf(arena, Math.max(top + top / 2, 4));
+    }
+    if (offsets.length > 2 * clauses){
+      resizeHeaders(Math.max(clauses + clauses / 2, 4));
+    }
+    return map;
+  }
+
+}
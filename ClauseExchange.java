@@ -0,0 +1,123 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free exchange of short learned clauses between solver threads
+ * working on the same clauses.
+ * <p>
+ * Every worker owns a ring buffer that only it writes to, and reads the
+ * rings of the others with its own cursors, so neither side ever waits. A
+ * reader that falls more than a ring behind skips the clauses that were
+ * overwritten; a slot overwritten while it is read just yields a newer
+ * clause. Both are harmless, as every learned clause is implied by the
+ * clauses all workers share.
+ **/
+class ClauseExchange{
+
+  /**
+   * Clauses up to this length, and with an LBD up to MAX_LBD, are exported.
+   **/
+  public static final int MAX_LENGTH = 8;
+  public static final int MAX_LBD = 3;
+
+  private final AtomicReferenceArray<int[]>[] rings;
+  private final AtomicLong[] heads;
+  private final int mask;
+  private final AtomicInteger registered = new AtomicInteger();
+
+  /**
+   * @param workers the maximum number of workers that can register.
+   * @param capacity clauses kept per worker, rounded up to a power of two.
+   **/
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ClauseExchange(int workers, int capacity){
+    int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+    this.mask = size - 1;
+    this.rings = new AtomicReferenceArray[workers];
+    this.heads = new AtomicLong[workers];
+    for (int i = 0; i < workers; i++){
+      rings[i] = new AtomicReferenceArray<>(size);
+      heads[i] = new AtomicLong();
+    }
+  }
+
+  /**
+   * Gives the calling worker its own ring and cursors.
+   *
+   * @return Port the worker's end of the exchange, or null if all are taken.
+   **/
+  public Port register(){
+    int id = registered.getAndIncrement();
+    return (id < rings.length) ? new Port(id) : null;
+  }
+
+  /**
+   * Receives imported clauses.
+   **/
+  interface Importer{
+
+    /**
+     * @param clause the LBD of the clause followed by its literals.
+     **/
+    void clause(int[] clause);
+
+  }
+
+  /**
+   * A worker's end of the exchange; to be used by that worker only.
+   **/
+  class Port{
+
+    private final int id;
+    // Position of the next clause to read from every ring.
+    private final long[] cursors = new long[rings.length];
+
+    private Port(int id){
+      this.id = id;
+    }
+
+    /**
+     * Publishes a clause if it is short and good enough to be worth sharing.
+     *
+     * @param literals array holding the clause.
+     * @param length the number of literals.
+     * @param lbd the literal block distance of the clause.
+     **/
+    public void export(int[] literals, int length, int lbd){
+      if (length > MAX_LENGTH || lbd > MAX_LBD){
+        return;
+      }
+      int[] clause = new int[length + 1];
+      clause[0] = lbd;
+      System.arraycopy(literals, 0, clause, 1, length);
+      long head = heads[id].get();
+      rings[id].lazySet((int) head & mask, clause);
+      // Ordered after the slot, so readers that see the new head see the clause.
+      heads[id].lazySet(head + 1);
+    }
+
+    /**
+     * Hands every clause the other workers exported since the last call to
+     * the importer.
+     **/
+    public void importClauses(Importer importer){
+      for (int other = 0; other < rings.length; other++){
+        if (other == id){
+          continue;
+        }
+        long head = heads[other].get();
+        long cursor = Math.max(cursors[other], head - mask - 1);
+        for (; cursor < head; cursor++){
+          int[] clause = rings[other].get((int) cursor & mask);
+          if (clause != null){
+            importer.clause(clause);
+          }
+        }
+        cursors[other] = head;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cube-and-conquer: the formula is split into cubes by lookahead, and the
+ * cubes are solved under assumptions by CDCL engines on a work-stealing
+ * pool, one engine per worker thread. An engine keeps its learned clauses
+ * from one cube to the next, and shares the short ones with the other
+ * engines. A cube that is not solved within its conflict
+ * budget is split again, and its subcubes are queued as new tasks that
+ * idle workers can steal. The formula is unsatisfiable when every cube is,
+ * and satisfiable as soon as one cube is, which stops the other engines.
+ *
+ * @see https://www.cs.utexas.edu/~marijn/publications/cube.pdf
+ **/
+class CubeAndConquer{
+
+  private static final int CUBES_PER_WORKER = 16;
+  private static final long CONFLICT_BUDGET = 10000;
+  private static final int SPLIT_DEPTH = 2;
+  private static final int EXCHANGE_CAPACITY = 4096;
+
+  private final ClauseDatabase clauses;
+  private final int workers;
+  private final ThreadLocal<CdclEngine> engine;
+  private final ThreadLocal<Lookahead> lookahead;
+  private final List<CdclEngine> engines = new ArrayList<>();
+  private final ClauseExchange exchange;
+  private final AtomicInteger solvedCubes = new AtomicInteger();
+  private volatile SolverListener listener;
+  private volatile SolveLimits limits;
+  private volatile long maxClauseMemory = Long.MAX_VALUE;
+  private volatile byte[] model;
+
+  /**
+   * @param clauses the clauses to solve.
+   * @param workers the number of worker threads.
+   **/
+  public CubeAndConquer(ClauseDatabase clauses, int workers){
+    if (workers < 1){
+      throw new IllegalArgumentException("Cube-and-conquer needs at least one worker.");
+    }
+    this.clauses = clauses;
+    this.workers = workers;
+    // Room for the threads a pool may add while workers wait on joins.
+    this.exchange = new ClauseExchange(2 * workers, EXCHANGE_CAPACITY);
+    this.engine = ThreadLocal.withInitial(() -> {
+      CdclEngine e = new CdclEngine(clauses);
+      e.setConflictBudget(CONFLICT_BUDGET);
+      e.setClauseExchange(exchange.register());
+      e.setListener(listener);
+      e.setLimits(limits);
+      e.setMaxClauseMemory(maxClauseMemory);
+      synchronized (engines){
+        engines.add(e);
+        // A cube was found satisfiable before this engine existed.
+        if (model != null){
+          e.stop();
+        }
+      }
+      return e;
+    });
+    this.lookahead = ThreadLocal.withInitial(() -> new Lookahead(clauses));
+  }
+
+  /**
+   * Sets the clause memory budget of the engines; each engine gets the
+   * whole budget.
+   *
+   * @param bytes the clause memory budget of an engine.
+   * @see CdclEngine#setMaxClauseMemory(long)
+   **/
+  public void setMaxClauseMemory(long bytes){
+    this.maxClauseMemory = bytes;
+  }
+
+  /**
+   * Splits the formula and solves the cubes.
+   *
+   * @return int CdclEngine.SATISFIABLE, UNSATISFIABLE, or UNKNOWN if a limit is reached.
+   **/
+  public int solve(){
+    int depth = 0;
+    while ((1 << depth) < workers * CUBES_PER_WORKER && depth < 30){
+      depth++;
+    }
+    List<int[]> cubes = new Lookahead(clauses).split(new int[0], depth);
+    ForkJoinPool pool = new ForkJoinPool(workers);
+    try {
+      List<Cube> tasks = new ArrayList<>();
+      for (int[] cube : cubes){
+        tasks.add(new Cube(cube));
+      }
+      pool.invoke(new RecursiveAction(){
+        @Override
+        protected void compute(){
+          invokeAll(tasks);
+        }
+      });
+    } finally {
+      pool.shutdown();
+    }
+    if (model != null){
+      return CdclEngine.SATISFIABLE;
+    }
+    return (isStopped()) ? CdclEngine.UNKNOWN : CdclEngine.UNSATISFIABLE;
+  }
+
+  /**
+   * Sets the listener of the engines; it is called from the worker threads.
+   **/
+  public void setListener(SolverListener listener){
+    this.listener = listener;
+  }
+
+  /**
+   * Sets the limits of the engines, started by the caller. Once one is
+   * reached, no more cubes are solved.
+   **/
+  public void setLimits(SolveLimits limits){
+    this.limits = limits;
+  }
+
+  /**
+   * The counters of all engines together.
+   **/
+  public SolverStatistics statistics(){
+    SolverStatistics statistics = new SolverStatistics();
+    synchronized (engines){
+      for (CdclEngine e : engines){
+        statistics.add(e.statistics());
+      }
+    }
+    return statistics;
+  }
+
+  public byte[] model(){
+    return model;
+  }
+
+  /**
+   * The number of cubes solved, including cubes that were split again.
+   **/
+  public int cubes(){
+    return solvedCubes.get();
+  }
+
+  private class Cube extends RecursiveAction{
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] literals;
+
+    Cube(int[] literals){
+      this.literals = literals;
+    }
+
+    @Override
+    protected void compute(){
+      if (model != null || isStopped()){
+        return;
+      }
+      CdclEngine e = engine.get();
+      int result = e.solve(literals);
+      solvedCubes.incrementAndGet();
+      if (result == CdclEngine.SATISFIABLE){
+        found(e.model());
+        return;
+      }
+      if (result == CdclEngine.UNSATISFIABLE || model != null || isStopped()){
+        return;
+      }
+      List<int[]> subcubes = lookahead.get().split(literals, SPLIT_DEPTH);
+      if (subcubes.size() == 1 && subcubes.get(0).length == literals.length){
+        // Lookahead found nothing to branch on, so the cube is solved without a budget.
+        e.setConflictBudget(Long.MAX_VALUE);
+        result = e.solve(literals);
+        e.setConflictBudget(CONFLICT_BUDGET);
+        if (result == CdclEngine.SATISFIABLE){
+          found(e.model());
+        }
+        return;
+      }
+      List<Cube> tasks = new ArrayList<>();
+      for (int[] subcube : subcubes){
+        tasks.add(new Cube(subcube));
+      }
+      invokeAll(tasks);
+    }
+
+  }
+
+  private boolean isStopped(){
+    return limits != null && limits.isStopped();
+  }
+
+  private void found(byte[] model){
+    synchronized (engines){
+      if (this.model == null){
+        this.model = model;
+      }
+      for (CdclEngine e : engines){
+        e.stop();
+      }
+    }
+  }
+
+}
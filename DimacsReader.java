@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads formulas in DIMACS CNF format into a clause database.
+ * <p>
+ * Plain files are memory-mapped and gzip files are inflated through a
+ * fixed buffer. Either way the bytes are parsed in place; no Strings are
+ * created, and every clause goes straight into the clause database as soon
+ * as its terminating 0 is read. DIMACS variable n becomes variable n-1.
+ *
+ * @see http://www.satcompetition.org/2009/format-benchmarks2009.html
+ **/
+class DimacsReader{
+
+  private static final int CHUNK = 1 << 16;
+  // Mapped windows are limited to 2 GB by the ByteBuffer API.
+  private static final long WINDOW = 1L << 30;
+  // Literals are 2*variable+sign in an int, which leaves room for 2^30 variables.
+  private static final int MAX_VARIABLES = (1 << 30) - 1;
+  private static final String FORMAT = "cnf";
+
+  private static final int CLAUSES = 0;
+  private static final int COMMENT = 1;
+  private static final int HEADER = 2;
+  private static final int END = 3;
+
+  private final ClauseDatabase clauses = new ClauseDatabase(1 << 10, 1 << 12);
+  private final byte[] chunk = new byte[CHUNK];
+
+  private int state = CLAUSES;
+  private int line = 1;
+  private int[] clause = new int[16];
+  private int clauseLength;
+  private int number;
+  private boolean negative;
+  private boolean inNumber;
+  private int headerNumbers;
+  // The letters of the format name read so far on the problem line.
+  private int formatLength;
+  // The variable count of the problem line, or -1 before one is read.
+  private int variables = -1;
+
+  private DimacsReader(){
+  }
+
+  /**
+   * Reads a DIMACS CNF file, which may be gzip compressed.
+   *
+   * @param file path to the .cnf or .cnf.gz file.
+   * @return ClauseDatabase the clauses of the file.
+   * @throws IOException if the file cannot be read or is not valid DIMACS.
+   **/
+  public static ClauseDatabase read(Path file) throws IOException{
+    DimacsReader reader = new DimacsReader();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      if (isGzip(channel)){
+        try (InputStream in = new GZIPInputStream(Channels.newInputStream(channel), CHUNK)){
+          reader.parse(in);
+        }
+      } else {
+        reader.parse(channel);
+      }
+    }
+    return reader.finish();
+  }
+
+  /**
+   * Reads DIMACS CNF from a stream, for example standard input.
+   *
+   * @param in the stream to read; it is not closed.
+   * @return ClauseDatabase the clauses read.
+   * @throws IOException if the stream cannot be read or is not valid DIMACS.
+   **/
+  public static ClauseDatabase read(InputStream in) throws IOException{
+    DimacsReader reader = new DimacsReader();
+    reader.parse(in);
+    return reader.finish();
+  }
+
+  private static boolean isGzip(FileChannel channel) throws IOException{
+    ByteBuffer magic = ByteBuffer.allocate(2);
+    channel.read(magic, 0);
+    return magic.position() == 2 && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+  }
+
+  private void parse(FileChannel channel) throws IOException{
+    long size = channel.size();
+    for (long position = 0; position < size && state != END; position += WINDOW){
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+      while (buffer.hasRemaining() && state != END){
+        int length = Math.min(buffer.remaining(), CHUNK);
+        buffer.get(chunk, 0, length);
+        parse(chunk, length);
+      }
+    }
+  }
+
+  private void parse(InputStream in) throws IOException{
+    int length;
+    while (state != END && (length = in.read(chunk)) >= 0){
+      parse(chunk, length);
+    }
+  }
+
+  private void parse(byte[] bytes, int length) throws IOException{
+    for (int i = 0; i < length; i++){
+      byte b = bytes[i];
+      switch (state){
+        case COMMENT:
+          if (b == '\n'){
+            line++;
+            state = CLAUSES;
+          }
+          continue;
+        case END:
+          return;
+        default:
+          break;
+      }
+      if (b >= '0' && b <= '9'){
+        if (number > (Integer.MAX_VALUE - 9) / 10){
+          throw new IOException("Number too large on line " + line + ".");
+        }
+        number = number * 10 + (b - '0');
+        inNumber = true;
+        continue;
+      }
+      if (inNumber){
+        endNumber();
+      }
+      if (b == ' ' || b == '\t' || b == '\r'){
+        if (state == HEADER && formatLength > 0 && formatLength < FORMAT.length()){
+          throw new IOException("Malformed problem line on line " + line + ".");
+        }
+        continue;
+      }
+      if (b == '\n'){
+        if (state == HEADER){
+          endHeader();
+        }
+        line++;
+        continue;
+      }
+      if (state == HEADER){
+        // The format name, "cnf", before the numbers.
+        if (headerNumbers > 0 || formatLength == FORMAT.length() || b != FORMAT.charAt(formatLength)){
+          throw new IOException("Malformed problem line on line " + line + ".");
+        }
+        formatLength++;
+        continue;
+      }
+      if (b == '-' && !negative){
+        negative = true;
+        continue;
+      }
+      if (negative){
+        throw new IOException("Expected a number after '-' on line " + line + ".");
+      }
+      if (b == 'c'){
+        state = COMMENT;
+      } else if (b == 'p'){
+        state = HEADER;
+        formatLength = 0;
+      } else if (b == '%'){
+        // Some benchmark sets end the clauses with a '%' line.
+        state = END;
+      } else {
+        throw new IOException("Unexpected character '" + (char) b + "' on line " + line + ".");
+      }
+    }
+  }
+
+  private void endNumber() throws IOException{
+    int value = number;
+    boolean negated = negative;
+    number = 0;
+    negative = false;
+    inNumber = false;
+
+    if (state == HEADER){
+      if (formatLength != FORMAT.length()){
+        throw new IOException("Malformed problem line on line " + line + ".");
+      }
+      // The first number is the variable count; the clause count is not needed.
+      if (headerNumbers++ == 0){
+        if (value > MAX_VARIABLES){
+          throw new IOException("Too many variables on line " + line + "; at most " + MAX_VARIABLES + " are supported.");
+        }
+        variables = value;
+        clauses.ensureVariables(value);
+      }
+      return;
+    }
+    if (value == 0){
+      clauses.addClause(clause, 0, clauseLength);
+      clauseLength = 0;
+      return;
+    }
+    if (clauseLength == clause.length){
+      int[] larger = new int[clause.length * 2];
+      System.arraycopy(clause, 0, larger, 0, clauseLength);
+      clause = larger;
+    }
+    if (value > MAX_VARIABLES){
+      throw new IOException("Variable " + value + " on line " + line + " is too large; at most " + MAX_VARIABLES + " variables are supported.");
+    }
+    if (variables >= 0 && value > variables){
+      throw new IOException("Variable " + value + " on line " + line + " is above the " + variables + " variables of the problem line.");
+    }
+    clause[clauseLength++] = ClauseDatabase.literal(value - 1, negated);
+  }
+
+  private void endHeader() throws IOException{
+    if (headerNumbers != 2){
+      throw new IOException("Problem line should be 'p cnf <variables> <clauses>', on line " + line + ".");
+    }
+    state = CLAUSES;
+  }
+
+  private ClauseDatabase finish() throws IOException{
+    if (inNumber){
+      endNumber();
+    }
+    if (state == HEADER){
+      endHeader();
+    }
+    if (negative){
+      throw new IOException("Expected a number after '-' on line " + line + ".");
+    }
+    // Tolerate a last clause without its terminating 0.
+    if (clauseLength > 0){
+      clauses.addClause(clause, 0, clauseLength);
+      clauseLength = 0;
+    }
+    return clauses;
+  }
+
+}
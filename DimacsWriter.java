@@ -0,0 +1,120 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes clauses in DIMACS CNF format.
+ * <p>
+ * Numbers are formatted straight into a fixed byte buffer, which is
+ * written out whenever it fills up; no Strings are created per clause.
+ * Variable n is written as DIMACS variable n+1, the reverse of
+ * DimacsReader.
+ *
+ * @see http://www.satcompetition.org/2009/format-benchmarks2009.html
+ **/
+class DimacsWriter implements InstanceGenerator.ClauseSink, Closeable{
+
+  private static final int CHUNK = 1 << 16;
+  // The longest literal, "-2147483648 ".
+  private static final int LITERAL_BYTES = 12;
+
+  private final OutputStream out;
+  private final byte[] buffer = new byte[CHUNK];
+  private int position;
+
+  /**
+   * Writes the problem line; the clauses are to follow.
+   *
+   * @param out the stream to write to.
+   * @param variables the number of variables.
+   * @param clauses the number of clauses that will be written.
+   **/
+  public DimacsWriter(OutputStream out, int variables, long clauses) throws IOException{
+    this.out = out;
+    byte[] header = ("p cnf " + variables + " " + clauses + "\n").getBytes(StandardCharsets.US_ASCII);
+    out.write(header);
+  }
+
+  /**
+   * Writes an instance to a file, gzip compressed if the name ends in .gz.
+   *
+   * @param file the file to write.
+   * @param generator the instance.
+   * @throws IOException if the file cannot be written.
+   **/
+  public static void write(Path file, InstanceGenerator generator) throws IOException{
+    OutputStream out = Files.newOutputStream(file);
+    if (file.getFileName().toString().endsWith(".gz")){
+      out = new GZIPOutputStream(out, CHUNK);
+    }
+    try (DimacsWriter writer = new DimacsWriter(out, generator.variables(), generator.clauses())){
+      generator.generate(writer);
+    }
+  }
+
+  /**
+   * Writes an instance to a stream, for example standard output.
+   *
+   * @param out the stream to write to; it is flushed but not closed.
+   * @param generator the instance.
+   * @throws IOException if the stream cannot be written.
+   **/
+  public static void write(OutputStream out, InstanceGenerator generator) throws IOException{
+    DimacsWriter writer = new DimacsWriter(out, generator.variables(), generator.clauses());
+    generator.generate(writer);
+    writer.flush();
+  }
+
+  public void clause(int[] literals, int length) throws IOException{
+    for (int i = 0; i < length; i++){
+      if (position + LITERAL_BYTES > CHUNK){
+        flushBuffer();
+      }
+      int literal = literals[i];
+      if (ClauseDatabase.isNegated(literal)){
+        buffer[position++] = '-';
+      }
+      writeNumber(ClauseDatabase.variable(literal) + 1);
+      buffer[position++] = ' ';
+    }
+    if (position + 2 > CHUNK){
+      flushBuffer();
+    }
+    buffer[position++] = '0';
+    buffer[position++] = '\n';
+  }
+
+  private void writeNumber(int number){
+    int start = position;
+    do {
+      buffer[position++] = (byte) ('0' + number % 10);
+      number /= 10;
+    } while (number > 0);
+    // The digits were written least significant first.
+    for (int i = start, j = position - 1; i < j; i++, j--){
+      byte swap = buffer[i];
+      buffer[i] = buffer[j];
+      buffer[j] = swap;
+    }
+  }
+
+  private void flushBuffer() throws IOException{
+    out.write(buffer, 0, position);
+    position = 0;
+  }
+
+  public void flush() throws IOException{
+    flushBuffer();
+    out.flush();
+  }
+
+  public void close() throws IOException{
+    flushBuffer();
+    out.close();
+  }
+
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/**
+ * Node of a formula tree. Conjunctions and disjunctions are n-ary, so long
+ * chains of 'and' or 'or' do not make the tree deep. Atoms carry the
+ * variable id their name was interned to. Nodes are immutable and compare
+ * structurally, so that equal subformulas can be shared.
+ **/
+class FormulaNode{
+
+  public static final int ATOM = 0;
+  public static final int NOT = 1;
+  public static final int AND = 2;
+  public static final int OR = 3;
+  public static final int IMPLIES = 4;
+  public static final int EQUIVALENT = 5;
+  public static final int ALWAYS = 6;
+  public static final int EVENTUALLY = 7;
+  public static final int NEXT = 8;
+  public static final int UNTIL = 9;
+
+  private static final FormulaNode[] NONE = new FormulaNode[0];
+
+  private final int operator;
+  private final int variable;
+  private final String name;
+  private final FormulaNode[] children;
+  private final int hash;
+
+  private FormulaNode(int operator, int variable, String name, FormulaNode[] children){
+    this.operator = operator;
+    this.variable = variable;
+    this.name = name;
+    this.children = children;
+    this.hash = 31 * (31 * operator + variable) + Arrays.hashCode(children);
+  }
+
+  /**
+   * Creates an atom.
+   *
+   * @param variable the id of the atom, shared by all atoms with the same name.
+   * @param name the name of the atom.
+   * @return FormulaNode the new node.
+   **/
+  public static FormulaNode atom(int variable, String name){
+    return new FormulaNode(ATOM, variable, name, NONE);
+  }
+
+  public static FormulaNode not(FormulaNode child){
+    return unary(NOT, child);
+  }
+
+  /**
+   * Creates a node for a unary operator.
+   *
+   * @param operator NOT, ALWAYS, EVENTUALLY or NEXT.
+   * @param child the operand.
+   * @return FormulaNode the new node.
+   **/
+  public static FormulaNode unary(int operator, FormulaNode child){
+    return new FormulaNode(operator, -1, null, new FormulaNode[]{child});
+  }
+
+  /**
+   * Creates a node for a binary or n-ary operator.
+   *
+   * @param operator AND, OR, IMPLIES, EQUIVALENT or UNTIL.
+   * @param children the operands; exactly two for IMPLIES, EQUIVALENT and UNTIL.
+   * @return FormulaNode the new node.
+   **/
+  public static FormulaNode of(int operator, FormulaNode... children){
+    return new FormulaNode(operator, -1, null, children);
+  }
+
+  public int getOperator(){
+    return operator;
+  }
+
+  public int getVariable(){
+    return variable;
+  }
+
+  public String getName(){
+    return name;
+  }
+
+  public int size(){
+    return children.length;
+  }
+
+  public FormulaNode child(int index){
+    return children[index];
+  }
+
+  @Override
+  public boolean equals(Object other){
+    if (this == other){
+      return true;
+    }
+    if (!(other instanceof FormulaNode)){
+      return false;
+    }
+    FormulaNode node = (FormulaNode) other;
+    return hash == node.hash && operator == node.operator && variable == node.variable
+      && Arrays.equals(children, node.children);
+  }
+
+  @Override
+  public int hashCode(){
+    return hash;
+  }
+
+}
@@ -0,0 +1,322 @@
+import java.lang.IllegalArgumentException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass lexer and recursive-descent parser for formulas, building a
+ * tree of FormulaNodes.
+ * <p>
+ * Atoms are identifiers of any length, made of any characters except
+ * whitespace and parentheses. Each distinct identifier is interned once and
+ * numbered in order of first occurrence, and atoms refer to that number.
+ * The operators bind from strongest to weakest in the order not (and the
+ * unary temporal operators), until, and, or, implies, equivalent.
+ * Implications associate to the right, the others to the left. The first
+ * error found is thrown with its position.
+ **/
+class FormulaParser{
+
+  private static final int END = 0;
+  private static final int LEFT = 1;
+  private static final int RIGHT = 2;
+  private static final int IDENTIFIER = 3;
+  private static final int NOT = 4;
+  private static final int AND = 5;
+  private static final int OR = 6;
+  private static final int IMPLIES = 7;
+  private static final int EQUIVALENT = 8;
+  private static final int ALWAYS = 9;
+  private static final int EVENTUALLY = 10;
+  private static final int NEXT = 11;
+  private static final int UNTIL = 12;
+
+  private static final String[] KEYWORDS = {"not", "and", "or", "implies", "equivalent", "always", "eventually", "next", "until"};
+
+  private final String formula;
+  private int position;
+
+  // The current token, from tokenStart (inclusive) to position (exclusive).
+  private int token;
+  private int tokenStart;
+
+  // Open addressing table from identifier to variable id; slots are pairs of id+1 and the hash of the name.
+  private int[] table = new int[128];
+  private final List<String> variables = new ArrayList<>();
+  // Atoms and negated atoms are immutable, so one node per variable is shared by all occurrences.
+  private final List<FormulaNode> atoms = new ArrayList<>();
+  private final List<FormulaNode> negations = new ArrayList<>();
+  // Operands of the chains being parsed, shared by all levels of nesting.
+  private FormulaNode[] operands = new FormulaNode[16];
+  private int operandCount;
+  private boolean propositional = true;
+
+  private final FormulaNode root;
+
+  /**
+   * Parses a formula.
+   *
+   * @param formula formula in text form.
+   * @throws FormulaSyntaxException if the formula is not syntactically valid.
+   **/
+  public FormulaParser(String formula){
+    this.formula = formula;
+    next();
+    this.root = equivalence();
+    if (token != END){
+      throw error("Expected an operator or the end of the formula", "");
+    }
+  }
+
+  /**
+   * Parses a formula and returns its tree.
+   *
+   * @param formula formula in text form.
+   * @return FormulaNode the root of the formula tree.
+   * @throws FormulaSyntaxException if the formula is not syntactically valid.
+   **/
+  public static FormulaNode parse(String formula){
+    return new FormulaParser(formula).getRoot();
+  }
+
+  public FormulaNode getRoot(){
+    return root;
+  }
+
+  /**
+   * The names of the atoms, where atom i has variable id i.
+   **/
+  public String[] getVariables(){
+    return variables.toArray(new String[0]);
+  }
+
+  /**
+   * True if the formula has no temporal operators.
+   **/
+  public boolean isPropositional(){
+    return propositional;
+  }
+
+  // Reads the next token.
+  private void next(){
+    while (position < formula.length() && Character.isWhitespace(formula.charAt(position))){
+      position++;
+    }
+    tokenStart = position;
+    if (position == formula.length()){
+      token = END;
+      return;
+    }
+    char c = formula.charAt(position++);
+    if (c == '('){
+      token = LEFT;
+      return;
+    }
+    if (c == ')'){
+      token = RIGHT;
+      return;
+    }
+    while (position < formula.length()){
+      c = formula.charAt(position);
+      if (c == '(' || c == ')' || Character.isWhitespace(c)){
+        break;
+      }
+      position++;
+    }
+    token = IDENTIFIER;
+    for (int k = 0; k < KEYWORDS.length; k++){
+      if (KEYWORDS[k].length() == position - tokenStart && formula.startsWith(KEYWORDS[k], tokenStart)){
+        token = NOT + k;
+        return;
+      }
+    }
+  }
+
+  private boolean accept(int expected){
+    if (token == expected){
+      next();
+      return true;
+    }
+    return false;
+  }
+
+  private FormulaNode equivalence(){
+    FormulaNode left = implication();
+    while (accept(EQUIVALENT)){
+      left = FormulaNode.of(FormulaNode.EQUIVALENT, left, implication());
+    }
+    return left;
+  }
+
+  // Implication is right-associative. The operands are collected first, so long chains do not recurse.
+  private FormulaNode implication(){
+    int first = operandCount;
+    do {
+      push(chain(FormulaNode.OR, OR));
+    } while (accept(IMPLIES));
+    FormulaNode right = operands[--operandCount];
+    while (operandCount > first){
+      right = FormulaNode.of(FormulaNode.IMPLIES, operands[--operandCount], right);
+    }
+    return right;
+  }
+
+  // Parses operands joined by one n-ary operator, merging operands that use the same operator.
+  private FormulaNode chain(int operator, int word){
+    int first = operandCount;
+    do {
+      FormulaNode operand = (operator == FormulaNode.OR) ? chain(FormulaNode.AND, AND) : until();
+      if (operand.getOperator() == operator){
+        for (int i = 0; i < operand.size(); i++){
+          push(operand.child(i));
+        }
+      } else {
+        push(operand);
+      }
+    } while (accept(word));
+    int count = operandCount - first;
+    operandCount = first;
+    if (count == 1){
+      return operands[first];
+    }
+    return FormulaNode.of(operator, Arrays.copyOfRange(operands, first, first + count));
+  }
+
+  private void push(FormulaNode operand){
+    if (operandCount == operands.length){
+      operands = Arrays.copyOf(operands, operandCount * 2);
+    }
+    operands[operandCount++] = operand;
+  }
+
+  private FormulaNode until(){
+    FormulaNode left = unary();
+    while (accept(UNTIL)){
+      propositional = false;
+      left = FormulaNode.of(FormulaNode.UNTIL, left, unary());
+    }
+    return left;
+  }
+
+  private FormulaNode unary(){
+    // Prefix operators are collected first, so long runs of them do not recurse.
+    int[] prefixes = null;
+    int count = 0;
+    while (token == NOT || token == ALWAYS || token == EVENTUALLY || token == NEXT){
+      if (token != NOT){
+        propositional = false;
+      }
+      if (prefixes == null){
+        prefixes = new int[4];
+      } else if (count == prefixes.length){
+        prefixes = Arrays.copyOf(prefixes, count * 2);
+      }
+      prefixes[count++] = token;
+      next();
+    }
+    FormulaNode node = primary();
+    while (count > 0){
+      int operator = operator(prefixes[--count]);
+      if (operator == FormulaNode.NOT && node.getOperator() == FormulaNode.ATOM){
+        node = negations.get(node.getVariable());
+      } else {
+        node = FormulaNode.unary(operator, node);
+      }
+    }
+    return node;
+  }
+
+  private FormulaNode primary(){
+    if (token == LEFT){
+      int left = tokenStart;
+      next();
+      FormulaNode inner = equivalence();
+      if (token != RIGHT){
+        throw error("Expected ')'", " The '(' at position " + (left + 1) + " is not closed.");
+      }
+      next();
+      return inner;
+    }
+    if (token != IDENTIFIER){
+      throw error("Expected an atom, a unary operator or '('", "");
+    }
+    FormulaNode atom = atoms.get(intern(tokenStart, position));
+    next();
+    return atom;
+  }
+
+  private static int operator(int token){
+    switch (token){
+      case ALWAYS:
+        return FormulaNode.ALWAYS;
+      case EVENTUALLY:
+        return FormulaNode.EVENTUALLY;
+      case NEXT:
+        return FormulaNode.NEXT;
+      default:
+        return FormulaNode.NOT;
+    }
+  }
+
+  /**
+   * Returns the variable id of the identifier between start and end,
+   * numbering it if it has not been seen before. Lookups hash the
+   * characters in place, so only new identifiers create a String.
+   **/
+  private int intern(int start, int end){
+    int hash = 0;
+    for (int i = start; i < end; i++){
+      hash = 31 * hash + formula.charAt(i);
+    }
+    int mask = table.length - 2;
+    int slot = slot(hash);
+    while (table[slot] != 0){
+      if (table[slot + 1] == hash){
+        String name = variables.get(table[slot] - 1);
+        if (name.length() == end - start && formula.startsWith(name, start)){
+          return table[slot] - 1;
+        }
+      }
+      slot = (slot + 2) & mask;
+    }
+    String name = formula.substring(start, end);
+    FormulaNode atom = FormulaNode.atom(variables.size(), name);
+    variables.add(name);
+    atoms.add(atom);
+    negations.add(FormulaNode.not(atom));
+    table[slot] = variables.size();
+    table[slot + 1] = hash;
+    if (4 * variables.size() > table.length){
+      rehash();
+    }
+    return variables.size() - 1;
+  }
+
+  private void rehash(){
+    int[] old = table;
+    table = new int[old.length * 2];
+    int mask = table.length - 2;
+    for (int i = 0; i < old.length; i += 2){
+      if (old[i] == 0){
+        continue;
+      }
+      int slot = slot(old[i + 1]);
+      while (table[slot] != 0){
+        slot = (slot + 2) & mask;
+      }
+      table[slot] = old[i];
+      table[slot + 1] = old[i + 1];
+    }
+  }
+
+  // Names such as x1, x2, ... have consecutive hashes, so they are spread by multiplying before probing.
+  private int slot(int hash){
+    return ((hash * 0x9E3779B9) >>> (33 - Integer.numberOfTrailingZeros(table.length))) << 1;
+  }
+
+  private FormulaSyntaxException error(String expected, String note){
+    String found = (token == END) ? "the end of the formula" : "'" + formula.substring(tokenStart, position) + "'";
+    return new FormulaSyntaxException(expected + " at position " + (tokenStart + 1) + ", found " + found + "." + note, tokenStart);
+  }
+
+}
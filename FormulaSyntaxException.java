@@ -0,0 +1,25 @@
+import java.lang.IllegalArgumentException;
+
+/**
+ * Thrown when a formula is not syntactically valid. Carries the position of
+ * the first offending token.
+ **/
+class FormulaSyntaxException extends IllegalArgumentException{
+
+  private static final long serialVersionUID = 1L;
+
+  private final int position;
+
+  public FormulaSyntaxException(String message, int position){
+    super(message);
+    this.position = position;
+  }
+
+  /**
+   * The index of the first character of the offending token.
+   **/
+  public int getPosition(){
+    return position;
+  }
+
+}
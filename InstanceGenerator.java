@@ -0,0 +1,361 @@
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates a family of CNF instances clause by clause. The clauses are
+ * handed to a sink as they are made, in one reused array, so they can go
+ * straight into a clause database or a DIMACS file without being held
+ * anywhere else.
+ **/
+interface InstanceGenerator{
+
+  int variables();
+
+  long clauses();
+
+  /**
+   * The total number of literals in the clauses, to size buffers up front.
+   **/
+  long literals();
+
+  /**
+   * Hands every clause of the instance to the sink.
+   *
+   * @param sink receives the clauses in order.
+   * @throws IOException if the sink fails to write a clause.
+   **/
+  void generate(ClauseSink sink) throws IOException;
+
+  /**
+   * Receives generated clauses.
+   **/
+  interface ClauseSink{
+
+    /**
+     * @param literals array holding the clause; it is reused for the next one.
+     * @param length the number of literals.
+     **/
+    void clause(int[] literals, int length) throws IOException;
+
+  }
+
+  /**
+   * Generates the instance into a new clause database.
+   *
+   * @return ClauseDatabase the clauses of the instance.
+   **/
+  default ClauseDatabase database(){
+    if (literals() > Integer.MAX_VALUE - 8){
+      throw new IllegalArgumentException("Instance too large for a clause database: " + literals() + " literals.");
+    }
+    ClauseDatabase database = new ClauseDatabase((int) clauses(), (int) literals());
+    database.ensureVariables(variables());
+    try {
+      generate((literals, length) -> database.addClause(literals, 0, length));
+    } catch (IOException e){
+      // Adding to a clause database does not throw.
+      throw new IllegalStateException(e);
+    }
+    return database;
+  }
+
+  /**
+   * Looks up a generator by name, a family and a size separated by '-':
+   * random&lt;k&gt;sat-n, pigeonhole-n, parity-n or generated-n, optionally
+   * followed by a seed for the random families, or by sat for generated.
+   *
+   * @param name the name of the instance, for example random3sat-100-7.
+   * @return InstanceGenerator the generator of the instance.
+   * @throws IllegalArgumentException if no family has the name.
+   **/
+  static InstanceGenerator named(String name){
+    String[] parts = name.split("-");
+    if (parts.length < 2 || parts.length > 3){
+      throw new IllegalArgumentException("Expected <family>-<size>[-<seed>], found: " + name);
+    }
+    int n;
+    long seed;
+    try {
+      n = Integer.parseInt(parts[1]);
+      seed = (parts.length > 2 && !parts[2].equals("sat")) ? Long.parseLong(parts[2]) : n;
+    } catch (NumberFormatException e){
+      throw new IllegalArgumentException("Not a valid instance size or seed: " + name);
+    }
+    String family = parts[0];
+    if (family.startsWith("random") && family.endsWith("sat") && family.length() > 9){
+      int k = Integer.parseInt(family.substring(6, family.length() - 3));
+      return new RandomKSat(k, n, Math.round(RandomKSat.threshold(k) * n), seed);
+    }
+    switch (family){
+      case "pigeonhole":
+        return new Pigeonhole(n);
+      case "parity":
+        return new Parity(n, seed);
+      case "generated":
+        return new AllSigns(n, parts.length > 2 && parts[2].equals("sat"), false, false);
+      default:
+        throw new IllegalArgumentException("Not an instance family: " + family);
+    }
+  }
+
+  /**
+   * Clauses of k distinct variables drawn uniformly, each negated with
+   * probability 1/2.
+   **/
+  class RandomKSat implements InstanceGenerator{
+
+    private final int k;
+    private final int variables;
+    private final long clauses;
+    private final long seed;
+
+    /**
+     * @param k the clause length, at most the number of variables.
+     * @param variables the number of variables.
+     * @param clauses the number of clauses.
+     * @param seed the seed; the same seed gives the same instance.
+     **/
+    public RandomKSat(int k, int variables, long clauses, long seed){
+      if (k < 1 || k > variables){
+        throw new IllegalArgumentException("Clause length must be between 1 and " + variables + ": " + k);
+      }
+      this.k = k;
+      this.variables = variables;
+      this.clauses = clauses;
+      this.seed = seed;
+    }
+
+    /**
+     * The clause to variable ratio where random k-SAT instances go from
+     * mostly satisfiable to mostly unsatisfiable.
+     **/
+    static double threshold(int k){
+      double[] measured = {0, 1, 1, 4.26, 9.93, 21.12, 43.37, 87.79};
+      return (k < measured.length) ? measured[k] : Math.pow(2, k) * Math.log(2);
+    }
+
+    public int variables(){
+      return variables;
+    }
+
+    public long clauses(){
+      return clauses;
+    }
+
+    public long literals(){
+      return clauses * k;
+    }
+
+    public void generate(ClauseSink sink) throws IOException{
+      Random random = new Random(seed);
+      int[] clause = new int[k];
+      for (long c = 0; c < clauses; c++){
+        for (int i = 0; i < k; i++){
+          int v = random.nextInt(variables);
+          // Draw again if the variable is already in the clause.
+          for (int j = 0; j < i; j++){
+            if (ClauseDatabase.variable(clause[j]) == v){
+              v = random.nextInt(variables);
+              j = -1;
+            }
+          }
+          clause[i] = ClauseDatabase.literal(v, random.nextBoolean());
+        }
+        sink.clause(clause, k);
+      }
+    }
+
+  }
+
+  /**
+   * n+1 pigeons in n holes, no two in the same hole; unsatisfiable, and
+   * exponentially hard for resolution. Variable p*n+h is true if pigeon p
+   * sits in hole h.
+   **/
+  class Pigeonhole implements InstanceGenerator{
+
+    private final int holes;
+
+    public Pigeonhole(int holes){
+      if (holes < 1){
+        throw new IllegalArgumentException("Pigeonhole needs at least one hole: " + holes);
+      }
+      this.holes = holes;
+    }
+
+    public int variables(){
+      return (holes + 1) * holes;
+    }
+
+    public long clauses(){
+      long pigeons = holes + 1;
+      return pigeons + holes * pigeons * (pigeons - 1) / 2;
+    }
+
+    public long literals(){
+      long pigeons = holes + 1;
+      return pigeons * holes + holes * pigeons * (pigeons - 1);
+    }
+
+    public void generate(ClauseSink sink) throws IOException{
+      int pigeons = holes + 1;
+      int[] clause = new int[Math.max(holes, 2)];
+      for (int p = 0; p < pigeons; p++){
+        for (int h = 0; h < holes; h++){
+          clause[h] = ClauseDatabase.literal(p * holes + h, false);
+        }
+        sink.clause(clause, holes);
+      }
+      for (int h = 0; h < holes; h++){
+        for (int p = 0; p < pigeons; p++){
+          for (int q = p + 1; q < pigeons; q++){
+            clause[0] = ClauseDatabase.literal(p * holes + h, true);
+            clause[1] = ClauseDatabase.literal(q * holes + h, true);
+            sink.clause(clause, 2);
+          }
+        }
+      }
+    }
+
+  }
+
+  /**
+   * The parity of n variables required to be both odd and even, through
+   * two chains of XOR gates that add the variables in different orders;
+   * unsatisfiable. Variables n to 2n-2 and 2n-1 to 3n-3 hold the partial
+   * sums of the chains.
+   **/
+  class Parity implements InstanceGenerator{
+
+    private final int n;
+    private final long seed;
+
+    /**
+     * @param n the number of variables to sum, at least 2.
+     * @param seed the seed of the order of the second chain.
+     **/
+    public Parity(int n, long seed){
+      if (n < 2){
+        throw new IllegalArgumentException("Parity needs at least two variables: " + n);
+      }
+      this.n = n;
+      this.seed = seed;
+    }
+
+    public int variables(){
+      return 3 * n - 2;
+    }
+
+    public long clauses(){
+      return 2 * (4L * (n - 1) + 1);
+    }
+
+    public long literals(){
+      return 2 * (12L * (n - 1) + 1);
+    }
+
+    public void generate(ClauseSink sink) throws IOException{
+      int[] order = new int[n];
+      for (int i = 0; i < n; i++){
+        order[i] = i;
+      }
+      int[] clause = new int[3];
+      chain(sink, clause, order, n, true);
+      Random random = new Random(seed);
+      for (int i = n - 1; i > 0; i--){
+        int j = random.nextInt(i + 1);
+        int swap = order[i];
+        order[i] = order[j];
+        order[j] = swap;
+      }
+      chain(sink, clause, order, 2 * n - 1, false);
+    }
+
+    // Sums the variables in the given order into first, first+1, ... and asserts the parity of the last sum.
+    private void chain(ClauseSink sink, int[] clause, int[] order, int first, boolean odd) throws IOException{
+      int sum = order[0];
+      for (int i = 1; i < n; i++){
+        int next = first + i - 1;
+        xor(sink, clause, next, sum, order[i]);
+        sum = next;
+      }
+      clause[0] = ClauseDatabase.literal(sum, !odd);
+      sink.clause(clause, 1);
+    }
+
+    // The four clauses of z = x xor y.
+    private void xor(ClauseSink sink, int[] clause, int z, int x, int y) throws IOException{
+      for (int signs = 0; signs < 4; signs++){
+        boolean negateX = (signs & 1) != 0;
+        boolean negateY = (signs & 2) != 0;
+        clause[0] = ClauseDatabase.literal(x, negateX);
+        clause[1] = ClauseDatabase.literal(y, negateY);
+        // Rules out x = negateX and y = negateY unless z is their xor.
+        clause[2] = ClauseDatabase.literal(z, negateX == negateY);
+        sink.clause(clause, 3);
+      }
+    }
+
+  }
+
+  /**
+   * Every clause over n variables that has each variable once, in one of
+   * the 2^n sign combinations; clause i negates the variables whose bits
+   * are set in i. Together they are unsatisfiable. This is the formula Main
+   * generates for an integer argument.
+   **/
+  class AllSigns implements InstanceGenerator{
+
+    private final int n;
+    private final boolean satisfiable;
+    private final boolean first;
+    private final boolean unit;
+
+    /**
+     * @param n the number of variables, at most 62.
+     * @param satisfiable if true, leaves out one clause, which makes the formula satisfiable.
+     * @param first if true, the left out clause is the first instead of the last,
+     * and the unit clause is negated.
+     * @param unit if true, adds the unit clause of the first variable.
+     **/
+    public AllSigns(int n, boolean satisfiable, boolean first, boolean unit){
+      if (n < 1 || n > 62){
+        throw new IllegalArgumentException("The number of variables must be between 1 and 62: " + n);
+      }
+      this.n = n;
+      this.satisfiable = satisfiable;
+      this.first = first;
+      this.unit = unit;
+    }
+
+    public int variables(){
+      return n;
+    }
+
+    public long clauses(){
+      return (1L << n) - ((satisfiable) ? 1 : 0) + ((unit) ? 1 : 0);
+    }
+
+    public long literals(){
+      return n * ((1L << n) - ((satisfiable) ? 1 : 0)) + ((unit) ? 1 : 0);
+    }
+
+    public void generate(ClauseSink sink) throws IOException{
+      long count = (1L << n) - ((satisfiable) ? 1 : 0);
+      long signs = (first) ? 1 : 0;
+      int[] clause = new int[n];
+      for (long c = 0; c < count; c++, signs++){
+        for (int u = 0; u < n; u++){
+          clause[u] = ClauseDatabase.literal(u, (signs >> u & 1) != 0);
+        }
+        sink.clause(clause, n);
+      }
+      if (unit){
+        clause[0] = ClauseDatabase.literal(0, first);
+        sink.clause(clause, 1);
+      }
+    }
+
+  }
+
+}
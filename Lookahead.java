@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a formula into cubes, partial assignments that together cover
+ * every assignment not refuted by unit propagation.
+ * <p>
+ * At every node the literals of the candidate variables are tried one by
+ * one, and the variable whose two literals both propagate the most
+ * assignments is branched on. A literal whose propagation conflicts is
+ * failed, so its negation holds in the node and is assigned before the
+ * candidates are tried again; a node where both literals of a variable fail
+ * is refuted and gives no cube.
+ *
+ * @see https://en.wikipedia.org/wiki/Look-ahead_(backtracking)
+ **/
+class Lookahead{
+
+  // Only the variables that occur most often are looked ahead on.
+  private static final int CANDIDATES = 64;
+
+  private final Propagator propagator;
+  private final int[] candidates;
+  private List<int[]> cubes;
+  private int[] cube;
+
+  /**
+   * @param clauses the clauses to split; the lookahead works on its own copy.
+   **/
+  public Lookahead(ClauseDatabase clauses){
+    ClauseDatabase copy = clauses.copy();
+    this.propagator = new Propagator(copy);
+    int[] occurrences = new int[copy.variables()];
+    for (int c = 0; c < copy.size(); c++){
+      for (int i = 0; i < copy.length(c); i++){
+        occurrences[ClauseDatabase.variable(copy.literal(c, i))]++;
+      }
+    }
+    // Sort variables by decreasing occurrences, packed as occurrences in the high bits.
+    long[] keys = new long[occurrences.length];
+    for (int v = 0; v < occurrences.length; v++){
+      keys[v] = ((long) occurrences[v] << 32) | v;
+    }
+    Arrays.sort(keys);
+    int count = Math.min(CANDIDATES, keys.length);
+    this.candidates = new int[count];
+    for (int i = 0; i < count; i++){
+      candidates[i] = (int) keys[keys.length - 1 - i];
+    }
+  }
+
+  /**
+   * Splits the part of the search space where the cube holds.
+   *
+   * @param cube literals that are true in all the cubes returned.
+   * @param depth the number of branching variables to add to it.
+   * @return List the cubes, extending the given cube; empty if it is refuted.
+   **/
+  public List<int[]> split(int[] cube, int depth){
+    this.cubes = new ArrayList<>();
+    this.cube = Arrays.copyOf(cube, cube.length + depth);
+    propagator.backtrack(0);
+    if (!propagator.isInconsistent() && propagator.propagate() == Propagator.NO_CONFLICT){
+      boolean refuted = false;
+      for (int literal : cube){
+        if (propagator.value(literal) == Propagator.FALSE){
+          refuted = true;
+          break;
+        }
+        if (propagator.value(literal) == Propagator.UNASSIGNED){
+          propagator.decide(literal);
+          if (propagator.propagate() != Propagator.NO_CONFLICT){
+            refuted = true;
+            break;
+          }
+        }
+      }
+      if (!refuted){
+        split(cube.length, depth);
+      }
+    }
+    propagator.backtrack(0);
+    return cubes;
+  }
+
+  private void split(int size, int depth){
+    int level = propagator.decisionLevel();
+    int best = -1;
+    if (depth > 0){
+      best = branchingVariable();
+      if (best == -2){
+        propagator.backtrack(level);
+        return;
+      }
+    }
+    if (best < 0){
+      cubes.add(Arrays.copyOf(cube, size));
+      propagator.backtrack(level);
+      return;
+    }
+    for (int literal : new int[]{ClauseDatabase.literal(best, false), ClauseDatabase.literal(best, true)}){
+      propagator.decide(literal);
+      if (propagator.propagate() == Propagator.NO_CONFLICT){
+        cube[size] = literal;
+        split(size + 1, depth - 1);
+      }
+      propagator.backtrack(level);
+    }
+  }
+
+  /**
+   * Looks ahead on the unassigned candidates, assigning failed literals on
+   * the way.
+   *
+   * @return int the variable to branch on, -1 if no candidate is left, or
+   * -2 if the node is refuted.
+   **/
+  private int branchingVariable(){
+    while (true){
+      int best = -1;
+      long bestScore = -1;
+      boolean failed = false;
+      for (int v : candidates){
+        int positive = ClauseDatabase.literal(v, false);
+        if (propagator.value(positive) != Propagator.UNASSIGNED){
+          continue;
+        }
+        int ifTrue = probe(positive);
+        int ifFalse = probe(ClauseDatabase.negate(positive));
+        if (ifTrue < 0 && ifFalse < 0){
+          return -2;
+        }
+        if (ifTrue < 0 || ifFalse < 0){
+          // The failed literal is false in the whole node.
+          propagator.assign((ifTrue < 0) ? ClauseDatabase.negate(positive) : positive);
+          if (propagator.propagate() != Propagator.NO_CONFLICT){
+            return -2;
+          }
+          failed = true;
+          continue;
+        }
+        long score = (long) (ifTrue + 1) * (ifFalse + 1);
+        if (score > bestScore){
+          bestScore = score;
+          best = v;
+        }
+      }
+      // Failed literals may have changed the scores, so they are computed again.
+      if (!failed){
+        return best;
+      }
+    }
+  }
+
+  // The number of literals the literal propagates, or -1 if it fails.
+  private int probe(int literal){
+    int level = propagator.decisionLevel();
+    int before = propagator.trailSize();
+    propagator.decide(literal);
+    boolean conflict = propagator.propagate() != Propagator.NO_CONFLICT;
+    int propagated = propagator.trailSize() - before;
+    propagator.backtrack(level);
+    return (conflict) ? -1 : propagated;
+  }
+
+}
@@ -1,5 +1,7 @@
 
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,6 +13,9 @@ class Main{
     if (args.length < 1){
       System.out.println("Usage:\t java Main <formula in quotation marks> [<options>]\n");
       System.out.println("or\t java Main <Integer> [<options>]\n");
+      System.out.println("or\t java Main -f <DIMACS CNF file, optionally gzipped> [<options>]\n");
+      System.out.println("or\t java Main -batch <directory, file list of DIMACS files and formulas, or - for standard input> [<options>]\n");
+      System.out.println("or\t java Main -g <instance: random<k>sat-n, pigeonhole-n, parity-n or generated-n, optionally followed by -seed> [<options>]\n");
       //Add unicode guide
       //System.out.println("Logical symbols:\n");
       //System.out.println("\u2192 - implies");
@@ -25,23 +30,52 @@ class Main{
       System.exit(1);
     }
 
-    // No options supplied, print options
-    if (args.length < 2){
+    // With -f, the formula is read from the file given as the second argument, and with -g it is generated.
+    boolean dimacs = args[0].equals("-f");
+    boolean generated = args[0].equals("-g");
+    // With -batch, the second argument lists the instances to solve.
+    boolean batch = args[0].equals("-batch");
+    int first = (dimacs || generated || batch) ? 2 : 1;
+    if (first == 2 && args.length < 2)
+      throw new IllegalArgumentException("Expected "+((dimacs) ? "file" : (batch) ? "directory, file list or -" : "instance")+" after: "+args[0]);
+
+    // No options supplied, print options; a batch runs cdcl by default.
+    if (!batch && args.length < first + 1){
       System.out.println("No options specified.\n");
+      System.out.println("\t-pre\tsimplifies the clauses before running the methods");
       System.out.println("\t-b\tbrute-force");
       System.out.println("\t-bu\tbrute-force with unit clause considerations");
+      System.out.println("\t-bp\tbrute-force split over all cores");
       System.out.println("\t-dpll\toriginal dpll-algorithm");
+      System.out.println("\t-cdcl\tconflict-driven clause learning");
+      System.out.println("\t-luby\tuses Luby restarts in cdcl");
+      System.out.println("\t-geometric\tuses geometric restarts in cdcl");
+      System.out.println("\t-glucose\tuses LBD-based dynamic restarts in cdcl (default)");
+      System.out.println("\t-norestart\tdisables restarts in cdcl");
+      System.out.println("\t-portfolio\truns differently configured cdcl engines on all cores, first answer wins");
+      System.out.println("\t-cube\tcube-and-conquer: splits the formula by lookahead and solves the parts on all cores");
       System.out.println("\t-v\tgenerates a satisfiable CNF formula");
       System.out.println("\t-unsat\tgenerates an unsatisfiable CNF formula (default)");
       System.out.println("\t-first\tremoves the first clause in the generated unsatisfiable formula to make it satisfiable");
       System.out.println("\t-last\tremoves the last clause in the generated unsatisfiable formula to make it satisfiable (default)");
       System.out.println("\t-unit\tadds a unit clause to the generated unsatisfiable formula to make it satisfiable");
+      System.out.println("\t-timeout=<seconds>\tstops every method after the given time");
+      System.out.println("\t-conflicts=<n>, -decisions=<n>, -propagations=<n>\tstops dpll and the cdcl engines after n conflicts, decisions or propagations");
+      System.out.println("\t-memory=<MB>\tstops every method when the heap grows beyond the given size");
+      System.out.println("\t-clausememory=<MB>\tremoves learned clauses of a cdcl engine early when its clauses take more than the given size");
+      System.out.println("\t-cache, -cache=<directory>\tanswers formulas solved before, up to clause and literal order, from memory or also from the directory");
+      System.out.println("\t-cachesize=<MB>\tthe memory the cache may take, 64 MB by default");
+      System.out.println("\t-renumber\talso answers renamed formulas from the cache");
+      System.out.println("\t-proof=<file>\twrites a binary DRAT proof, which ends in the empty clause if dpll or cdcl finds the formula unsatisfiable");
+      System.out.println("\t-stats\tprints search statistics, and the progress of cdcl engines every " + CdclEngine.PROGRESS_INTERVAL + " conflicts");
+      System.out.println("\t-workers=<n>\tsolves n instances of a batch at a time, one per core by default");
+      System.out.println("\t-dimacs\twrites the generated formula to standard output in DIMACS CNF instead of solving it");
       System.exit(1);
     }
 
     // Extract options
     List<String> optList = new ArrayList<>();
-    for (int i = 1; i < args.length; i++){
+    for (int i = first; i < args.length; i++){
       switch (args[i].charAt(0)){
         case '-':
           if (args[i].length() < 2)
@@ -60,100 +94,268 @@ class Main{
 
     // Create a PropositionalFormula, which is either auto-generated or based on supplied formula.
     try{
-      PropositionalFormula myFormula = (isInteger(args[0])) ? new PropositionalFormula(generateFormula(Integer.parseInt(args[0]), optList.contains("-v"), optList.contains("-first"), optList.contains("-unit"))) : new PropositionalFormula(args[0]);
+      if (batch){
+        long workers = option(optList, "-workers=");
+        new Batch((workers < 0) ? Runtime.getRuntime().availableProcessors() : (int) workers, optList, System.out).run(args[1]);
+        return;
+      }
+
+      long time = System.nanoTime();
+      if (dimacs){
+        Solver solver = new Solver(DimacsReader.read(Paths.get(args[1])));
+        solver.parsed(System.nanoTime() - time);
+        System.out.println("\nFormula read from " + args[1] + ".\n");
+        solve(solver, optList);
+        return;
+      }
+
+      if (generated || isInteger(args[0])){
+        InstanceGenerator generator = (generated) ? InstanceGenerator.named(args[1]) : new InstanceGenerator.AllSigns(Integer.parseInt(args[0]), optList.contains("-v"), optList.contains("-first"), optList.contains("-unit"));
+        if (optList.contains("-dimacs")){
+          DimacsWriter.write(System.out, generator);
+          return;
+        }
+        Solver solver = new Solver(generator.database());
+        solver.parsed(System.nanoTime() - time);
+        System.out.printf("\nFormula generated with %d variables and %d clauses in %d ms.\n\n", generator.variables(), generator.clauses(), (System.nanoTime() - time)/1000000);
+        solve(solver, optList);
+        return;
+      }
+
+      PropositionalFormula myFormula = new PropositionalFormula(args[0]);
+      Solver solver = new Solver(myFormula);
+      solver.parsed(System.nanoTime() - time);
 
       System.out.println("\nFormula is a syntactically valid propositional formula.");
       if (myFormula.isCNF()){
-        Solver solver = new Solver(myFormula);
         System.out.println("\nFormula is in CNF.");
         System.out.printf("\nThe formula written as a set of clauses is {%s}.\n\n", myFormula.getCNF());
+        solve(solver, optList);
+      } else {
+        System.out.println("\nFormula is converted to an equisatisfiable CNF with the Tseitin encoding.\n");
+        solve(solver, optList);
+      };
+    } catch(FormulaSyntaxException e){
+      System.out.println("\nFormula is syntactically invalid. " + e.getMessage());
+      if (!isInteger(args[0])){
+        System.out.println(args[0]);
+        System.out.println(" ".repeat(e.getPosition()) + "^");
+      }
+    } catch(Exception e){
+      e.printStackTrace();
+    }
+  }
 
-        
-        if (optList.contains("-b")){
-          long time = System.nanoTime();
-          int interpretation = solver.bruteForce();
-          if (interpretation >= 0){
-            System.out.println("Bruteforce method successful: " + interpretation);
-          } else {
-            System.out.println("\nBruteforce method failed.");
-          }
-          long step = System.nanoTime() - time;
-          System.out.println("Time (ns) taken for bruteforce: " + step);
-        }
-        // Can be faster than regular brute-force, but same worst-case.
-        if (optList.contains("-bu")){
-          long time = System.nanoTime();
-          int interpretation = solver.bruteForceUnit();
-          if (interpretation >= 0){
-            System.out.println("Bruteforce method with unit clauses successful: " + interpretation);
-          } else {
-            System.out.println("\nBruteforce method with unit clauses failed.");
-          }
-          long step = System.nanoTime() - time;
-          System.out.println("Time (ns) taken for bruteforce with unit clauses: " + step);
-        }
-       
-        if (optList.contains("-dpll")){
-          long time = System.nanoTime();
-          int interpretation = solver.dpll();
-          if (interpretation >= 0){
-            System.out.println("DPLL successful: " + interpretation);
-          } else {
-            System.out.println("\nDPLL failed.");
+  /**
+  * Runs the solver methods selected in the options.
+  *
+  * @param solver the solver holding the formula.
+  * @param optList the supplied options.
+  */
+  private static void solve(Solver solver, List<String> optList) throws InterruptedException, IOException{
+    boolean stats = optList.contains("-stats");
+    setLimits(solver, optList);
+    solver.setCache(cache(optList));
+    for (String opt : optList){
+      if (opt.startsWith("-proof=")){
+        if (optList.contains("-pre"))
+          throw new IllegalArgumentException("A proof refers to the clauses before preprocessing, so -proof can not be combined with -pre.");
+        solver.setProof(Paths.get(opt.substring("-proof=".length())));
+      }
+    }
+    if (stats){
+      solver.setListener(new SolverListener(){
+        @Override
+        public void progress(SolverStatistics statistics){
+          // Parallel engines report from their own threads.
+          synchronized (System.out){
+            System.out.printf("Progress: %d conflicts, %d decisions, %.0f propagations/s, %d learned clauses, %d restarts, trail %d at most.\n", statistics.conflicts(), statistics.decisions(), statistics.propagationsPerSecond(), statistics.learnedClauses(), statistics.restarts(), statistics.maxTrail());
           }
-          long step = (System.nanoTime() - time)/1000000;
-          System.out.println("Time (us) taken for DPLL: " + step);
         }
+      });
+    }
+    if (optList.contains("-pre")){
+      long time = System.nanoTime();
+      solver.preprocess();
+      System.out.println("Time (ms) taken for preprocessing: " + (System.nanoTime() - time)/1000000);
+    }
+    if (optList.contains("-b")){
+      long time = System.nanoTime();
+      long interpretation = solver.bruteForce();
+      if (interpretation >= 0){
+        System.out.println("Bruteforce method successful: " + interpretation);
+      } else if (interpretation == Solver.STOPPED){
+        System.out.println("\nBruteforce method stopped.");
+      } else {
+        System.out.println("\nBruteforce method failed.");
+      }
+      long step = System.nanoTime() - time;
+      System.out.println("Time (ns) taken for bruteforce: " + step);
+    }
+    // Can be faster than regular brute-force, but same worst-case.
+    if (optList.contains("-bu")){
+      long time = System.nanoTime();
+      long interpretation = solver.bruteForceUnit();
+      if (interpretation >= 0){
+        System.out.println("Bruteforce method with unit clauses successful: " + interpretation);
+      } else if (interpretation == Solver.STOPPED){
+        System.out.println("\nBruteforce method with unit clauses stopped.");
+      } else {
+        System.out.println("\nBruteforce method with unit clauses failed.");
+      }
+      long step = System.nanoTime() - time;
+      System.out.println("Time (ns) taken for bruteforce with unit clauses: " + step);
+    }
+    if (optList.contains("-bp")){
+      long time = System.nanoTime();
+      long interpretation = solver.bruteForceParallel();
+      if (interpretation >= 0){
+        System.out.println("Parallel bruteforce method successful: " + interpretation);
+      } else if (interpretation == Solver.STOPPED){
+        System.out.println("\nParallel bruteforce method stopped.");
+      } else {
+        System.out.println("\nParallel bruteforce method failed.");
+      }
+      long step = System.nanoTime() - time;
+      System.out.println("Time (ns) taken for parallel bruteforce: " + step);
+    }
+   
+    if (optList.contains("-dpll")){
+      long time = System.nanoTime();
+      int interpretation = solver.dpll();
+      if (interpretation > 0){
+        System.out.println("DPLL successful: " + interpretation);
+      } else if (interpretation == CdclEngine.UNKNOWN){
+        System.out.println("\nDPLL stopped.");
+      } else {
+        System.out.println("\nDPLL failed.");
+      }
+      long step = (System.nanoTime() - time)/1000000;
+      System.out.println("Time (ms) taken for DPLL: " + step);
+      if (stats)
+        System.out.println("Statistics: " + solver.statistics());
+    }
 
+    if (optList.contains("-cdcl")){
+      long time = System.nanoTime();
+      int interpretation = solver.cdcl(restartPolicy(optList));
+      if (interpretation > 0){
+        System.out.println("CDCL successful: " + interpretation);
+      } else if (interpretation == CdclEngine.UNKNOWN){
+        System.out.println("\nCDCL stopped.");
+      } else {
+        System.out.println("\nCDCL failed.");
+      }
+      long step = (System.nanoTime() - time)/1000000;
+      System.out.println("Time (ms) taken for CDCL: " + step);
+      if (stats)
+        System.out.println("Statistics: " + solver.statistics());
+    }
+    if (optList.contains("-portfolio")){
+      long time = System.nanoTime();
+      int interpretation = solver.cdclPortfolio(Math.max(2, Runtime.getRuntime().availableProcessors()));
+      if (interpretation > 0){
+        System.out.println("Portfolio successful: " + interpretation);
+      } else if (interpretation == CdclEngine.UNKNOWN){
+        System.out.println("\nPortfolio stopped.");
+      } else {
+        System.out.println("\nPortfolio failed.");
+      }
+      long step = (System.nanoTime() - time)/1000000;
+      System.out.println("Time (ms) taken for portfolio: " + step);
+      if (stats)
+        System.out.println("Statistics: " + solver.statistics());
+    }
+    if (optList.contains("-cube")){
+      long time = System.nanoTime();
+      int interpretation = solver.cubeAndConquer(Runtime.getRuntime().availableProcessors());
+      if (interpretation > 0){
+        System.out.println("Cube-and-conquer successful: " + interpretation);
+      } else if (interpretation == CdclEngine.UNKNOWN){
+        System.out.println("\nCube-and-conquer stopped.");
+      } else {
+        System.out.println("\nCube-and-conquer failed.");
+      }
+      long step = (System.nanoTime() - time)/1000000;
+      System.out.println("Time (ms) taken for cube-and-conquer: " + step);
+      if (stats)
+        System.out.println("Statistics: " + solver.statistics());
+    }
+  }
 
-      };
-    } catch(Exception e){
-      e.printStackTrace();
+  /**
+  * Sets the limits and the clause memory budget given in the options.
+  *
+  * @param solver the solver to limit.
+  * @param optList the supplied options.
+  */
+  static void setLimits(Solver solver, List<String> optList){
+    SolveLimits limits = solver.limits();
+    long value;
+    if ((value = option(optList, "-timeout=")) >= 0)
+      limits.setTimeLimit(value * 1000);
+    if ((value = option(optList, "-conflicts=")) >= 0)
+      limits.setConflictLimit(value);
+    if ((value = option(optList, "-decisions=")) >= 0)
+      limits.setDecisionLimit(value);
+    if ((value = option(optList, "-propagations=")) >= 0)
+      limits.setPropagationLimit(value);
+    if ((value = option(optList, "-memory=")) >= 0)
+      limits.setMemoryLimit(value << 20);
+    if ((value = option(optList, "-clausememory=")) >= 0)
+      solver.setMaxClauseMemory(value << 20);
+  }
+
+  /**
+  * Creates the result cache given in the options.
+  *
+  * @param optList the supplied options.
+  * @return ResultCache the cache, or null if no -cache option is supplied.
+  */
+  static ResultCache cache(List<String> optList) throws IOException{
+    for (String opt : optList){
+      if (opt.equals("-cache") || opt.startsWith("-cache=")){
+        long size = option(optList, "-cachesize=");
+        return new ResultCache(((size < 0) ? 64 : size) << 20, opt.equals("-cache") ? null : Paths.get(opt.substring("-cache=".length())), optList.contains("-renumber"));
+      }
     }
+    return null;
   }
 
   /**
-  * Generates a propositional CNF formula based on a given number of literals.
-  * Generates maximum number of clauses based on the number of literals.
-  * Note: this formula is a massive bottleneck, and becomes more or less useless
-  * for n>15.
+  * Selects the restart policy for cdcl from the options.
   *
-  * @param n Number of literals to be in formula.
-  * @param valid If true, generates a satisfiable formula by removing a clause.
-  * @param first If true, removes the first clause to generate the satisfiable formula. If false, it removes the last clause.
-  * @param unit If true, adds a unit clause to the formula in an attempt to make it satisfiable.
-  * @return String a propositional CNF formula that can be supplied as a argument to PropositionalFormula.
+  * @param optList the supplied options.
+  * @return RestartPolicy the selected policy, glucose if none is selected.
   */
-  private static String generateFormula(int n, boolean valid, boolean first, boolean unit){
-    Character[] literals = {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '2', '3', '4', '5', '6', '7', '8', '9'};
-    int i = n;
-    if (i > 31){
-      i = 31;
-      System.out.println("Highest current allowed formula length is 31.");
-    }
-    int max = (valid) ? (1 << n)-1 : 1 << n;
-    int check = (first) ? 1 : 0;
-    String s = "";
-
-    for (int v = 0; v < max; v++){
-      s = s.concat("(");
-      for (int u = 0; u < i; u++){
-        if (u != 0){
-          s = s.concat(" or ");
+  static RestartPolicy restartPolicy(List<String> optList){
+    if (optList.contains("-luby"))
+      return RestartPolicy.named("luby");
+    if (optList.contains("-geometric"))
+      return RestartPolicy.named("geometric");
+    if (optList.contains("-norestart"))
+      return RestartPolicy.named("none");
+    return RestartPolicy.named("glucose");
+  }
+
+  /**
+  * Finds the value of an option of the form -name=value.
+  *
+  * @param optList the supplied options.
+  * @param prefix the option name including the '='.
+  * @return long the value, or -1 if the option is not supplied.
+  */
+  static long option(List<String> optList, String prefix){
+    for (String opt : optList){
+      if (opt.startsWith(prefix)){
+        try {
+          return Long.parseLong(opt.substring(prefix.length()));
+        } catch (NumberFormatException e){
+          throw new IllegalArgumentException("Not a valid number in option: "+opt);
         }
-        if ((1 << u & check) > 0)
-          s = s.concat("not ");
-        s = s.concat(Character.toString(literals[u]));
       }
-      s = s.concat(")");
-      if (v < max - 1)
-        s = s.concat(" and ");
-      check++;
-    }
-    if (unit) {
-      s = s.concat((first) ? " and not a" : " and a");
     }
-    return s;
+    return -1;
   }
 
   /**
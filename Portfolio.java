@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Races differently configured CDCL engines on the same clauses, one per
+ * thread. The engines differ in restart policy, initial polarity and the
+ * random seed that breaks ties in the initial branching order, and share
+ * their short learned clauses. The first engine to reach SATISFIABLE or
+ * UNSATISFIABLE wins, and the others are stopped.
+ **/
+class Portfolio{
+
+  private static final String[] RESTARTS = {"glucose", "luby", "geometric"};
+  private static final int EXCHANGE_CAPACITY = 4096;
+
+  private final CdclEngine[] engines;
+  private final String[] descriptions;
+  private int winner = -1;
+  private SolveLimits limits;
+
+  /**
+   * @param clauses the clauses to solve; every engine works on its own copy.
+   * @param workers the number of engines, at least 1.
+   **/
+  public Portfolio(ClauseDatabase clauses, int workers){
+    if (workers < 1){
+      throw new IllegalArgumentException("A portfolio needs at least one worker.");
+    }
+    this.engines = new CdclEngine[workers];
+    this.descriptions = new String[workers];
+    ClauseExchange exchange = new ClauseExchange(workers, EXCHANGE_CAPACITY);
+    for (int i = 0; i < workers; i++){
+      String restarts = RESTARTS[i % RESTARTS.length];
+      boolean negated = (i / RESTARTS.length) % 2 == 1;
+      engines[i] = new CdclEngine(clauses);
+      engines[i].setRestartPolicy(RestartPolicy.named(restarts));
+      engines[i].setInitialPhase(negated);
+      engines[i].setClauseExchange(exchange.register());
+      // The first engine keeps the plain order, as in a single cdcl run.
+      if (i > 0){
+        engines[i].setSeed(i);
+      }
+      descriptions[i] = restarts + " restarts, " + ((negated) ? "negative" : "positive") + " phase, seed " + i;
+    }
+  }
+
+  /**
+   * Sets the clause memory budget of every engine; each engine gets the
+   * whole budget.
+   *
+   * @param bytes the clause memory budget of an engine.
+   * @see CdclEngine#setMaxClauseMemory(long)
+   **/
+  public void setMaxClauseMemory(long bytes){
+    for (CdclEngine engine : engines){
+      engine.setMaxClauseMemory(bytes);
+    }
+  }
+
+  /**
+   * Runs all engines until one of them finishes, and waits for the others
+   * to stop.
+   *
+   * @return int CdclEngine.SATISFIABLE, UNSATISFIABLE, or UNKNOWN if a limit is reached.
+   * @throws InterruptedException if the calling thread is interrupted while waiting.
+   **/
+  public int solve() throws InterruptedException{
+    ExecutorService executor = Executors.newFixedThreadPool(engines.length);
+    List<Callable<int[]>> tasks = new ArrayList<>();
+    for (int i = 0; i < engines.length; i++){
+      int index = i;
+      tasks.add(() -> {
+        int result = engines[index].solve();
+        if (result == CdclEngine.UNKNOWN){
+          throw new IllegalStateException("Stopped.");
+        }
+        return new int[]{index, result};
+      });
+    }
+    try {
+      // Returns the first task that completes without throwing, that is the first definitive answer.
+      int[] first = executor.invokeAny(tasks);
+      winner = first[0];
+      return first[1];
+    } catch (ExecutionException e){
+      if (limits != null && limits.isStopped()){
+        return CdclEngine.UNKNOWN;
+      }
+      throw new IllegalStateException("All portfolio engines failed.", e.getCause());
+    } finally {
+      for (CdclEngine engine : engines){
+        engine.stop();
+      }
+      executor.shutdown();
+      // The losing engines return at their next check; their counters are only read once they have.
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Sets the listener of every engine; it is called from the engine threads.
+   **/
+  public void setListener(SolverListener listener){
+    for (CdclEngine engine : engines){
+      engine.setListener(listener);
+    }
+  }
+
+  /**
+   * Sets the limits of every engine, started by the caller.
+   **/
+  public void setLimits(SolveLimits limits){
+    this.limits = limits;
+    for (CdclEngine engine : engines){
+      engine.setLimits(limits);
+    }
+  }
+
+  /**
+   * The counters of all engines together. Every engine has stopped once
+   * solve() returns, so they are final then.
+   **/
+  public SolverStatistics statistics(){
+    SolverStatistics statistics = new SolverStatistics();
+    for (CdclEngine engine : engines){
+      statistics.add(engine.statistics());
+    }
+    return statistics;
+  }
+
+  public byte[] model(){
+    return engines[winner].model();
+  }
+
+  /**
+   * The configuration of the engine that finished first, or none.
+   **/
+  public String winner(){
+    return (winner < 0) ? "none" : descriptions[winner];
+  }
+
+}
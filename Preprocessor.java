@@ -0,0 +1,493 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * SatELite-style CNF simplification, run before the solver engines.
+ * <p>
+ * Clauses are kept sorted with occurrence lists per literal. Unit clauses
+ * are propagated, clauses subsumed by another clause are removed, and
+ * clauses are strengthened by self-subsuming resolution: if C with one
+ * literal l negated is a subset of D, then not l can be removed from D. A
+ * variable is eliminated when resolving every clause containing it with
+ * every clause containing its negation gives no more clauses than it
+ * removes. The clauses of eliminated variables go on a reconstruction
+ * stack, from which a model of the simplified clauses is extended to the
+ * eliminated variables. All of this stops when its effort or time budget
+ * is spent, leaving whatever was simplified so far.
+ *
+ * @see http://minisat.se/downloads/SatELite.pdf
+ **/
+class Preprocessor{
+
+  public static final long DEFAULT_EFFORT = 100_000_000L;
+
+  // Variables with more resolution pairs than this are not eliminated.
+  private static final int MAX_RESOLUTIONS = 400;
+  private static final int MAX_RESOLVENT_LENGTH = 20;
+
+  private final int variables;
+  private int[][] clauses = new int[16][];
+  private long[] signatures = new long[16];
+  private boolean[] queued = new boolean[16];
+  private int clauseCount;
+  private int originalClauses;
+  private int simplifiedClauses;
+
+  private final int[][] occurrences;
+  private final int[] occurrenceCounts;
+  private final byte[] values;
+  private final Deque<Integer> units = new ArrayDeque<>();
+  private final Deque<Integer> queue = new ArrayDeque<>();
+  private final boolean[] eliminated;
+  private int eliminatedCount;
+  // Clauses of eliminated variables, each with the literal of its variable first.
+  private final List<int[]> stack = new ArrayList<>();
+  private boolean unsatisfiable;
+
+  // Literal marks for subset tests.
+  private final int[] marks;
+  private int stamp;
+
+  private long effort;
+  private long maxEffort = DEFAULT_EFFORT;
+  private long deadline = Long.MAX_VALUE;
+
+  /**
+   * @param clauses the clauses to simplify; they are not changed.
+   **/
+  public Preprocessor(ClauseDatabase clauses){
+    this.variables = clauses.variables();
+    this.occurrences = new int[2 * variables][];
+    this.occurrenceCounts = new int[2 * variables];
+    for (int l = 0; l < occurrences.length; l++){
+      occurrences[l] = new int[4];
+    }
+    this.values = new byte[variables];
+    this.eliminated = new boolean[variables];
+    this.marks = new int[2 * variables];
+    for (int c = 0; c < clauses.size() && !unsatisfiable; c++){
+      if (!clauses.isLearnt(c) && !clauses.isDeleted(c)){
+        add(clauses.clause(c));
+        originalClauses++;
+      }
+    }
+  }
+
+  /**
+   * Limits the work done, counted in literals visited.
+   **/
+  public void setEffortLimit(long steps){
+    this.maxEffort = steps;
+  }
+
+  public void setTimeLimit(long milliseconds){
+    this.deadline = System.nanoTime() + milliseconds * 1_000_000L;
+  }
+
+  /**
+   * Simplifies the clauses.
+   *
+   * @return ClauseDatabase the simplified clauses, over the same variables;
+   * eliminated variables do not occur in them.
+   **/
+  public ClauseDatabase simplify(){
+    propagate();
+    subsume();
+    boolean progress = true;
+    while (progress && !unsatisfiable && !outOfBudget()){
+      progress = eliminate();
+      propagate();
+      subsume();
+    }
+
+    ClauseDatabase result = new ClauseDatabase(clauseCount, 4 * clauseCount);
+    result.ensureVariables(variables);
+    if (unsatisfiable){
+      result.addClause(new int[0]);
+      simplifiedClauses = 1;
+      return result;
+    }
+    for (int c = 0; c < clauseCount; c++){
+      if (clauses[c] != null){
+        result.addClause(clauses[c]);
+      }
+    }
+    // Units were propagated away; they are kept as unit clauses for the engines.
+    for (int v = 0; v < variables; v++){
+      if (values[v] != Propagator.UNASSIGNED){
+        result.addClause(ClauseDatabase.literal(v, values[v] == Propagator.FALSE));
+      }
+    }
+    simplifiedClauses = result.size();
+    return result;
+  }
+
+  /**
+   * Extends a model of the simplified clauses to a model of the original
+   * ones, by going back through the clauses of the eliminated variables and
+   * making the eliminated literal true in each clause that is not yet
+   * satisfied.
+   *
+   * @param model a model of the simplified clauses.
+   * @return byte[] a model of the original clauses.
+   **/
+  public byte[] extend(byte[] model){
+    byte[] extended = Arrays.copyOf(model, Math.max(model.length, variables));
+    for (int v = 0; v < variables; v++){
+      if (eliminated[v] && extended[v] == Propagator.UNASSIGNED){
+        extended[v] = Propagator.FALSE;
+      }
+    }
+    for (int i = stack.size() - 1; i >= 0; i--){
+      int[] clause = stack.get(i);
+      boolean satisfied = false;
+      for (int literal : clause){
+        byte value = extended[ClauseDatabase.variable(literal)];
+        if (value == (ClauseDatabase.isNegated(literal) ? Propagator.FALSE : Propagator.TRUE)){
+          satisfied = true;
+          break;
+        }
+      }
+      if (!satisfied){
+        extended[ClauseDatabase.variable(clause[0])] = ClauseDatabase.isNegated(clause[0]) ? Propagator.FALSE : Propagator.TRUE;
+      }
+    }
+    return extended;
+  }
+
+  public boolean isUnsatisfiable(){
+    return unsatisfiable;
+  }
+
+  /**
+   * The number of clauses simplify() removed, net of the resolvents it added.
+   **/
+  public int removedClauses(){
+    return originalClauses - simplifiedClauses;
+  }
+
+  public int eliminatedVariables(){
+    return eliminatedCount;
+  }
+
+  private boolean outOfBudget(){
+    return effort > maxEffort || (deadline != Long.MAX_VALUE && System.nanoTime() > deadline);
+  }
+
+  // Sorts the clause, drops duplicate and false literals, and stores it unless it is satisfied or a tautology.
+  private void add(int[] clause){
+    Arrays.sort(clause);
+    int size = 0;
+    for (int literal : clause){
+      byte value = value(literal);
+      if (value == Propagator.TRUE){
+        return;
+      }
+      if (value == Propagator.FALSE || (size > 0 && clause[size - 1] == literal)){
+        continue;
+      }
+      if (size > 0 && clause[size - 1] == ClauseDatabase.negate(literal)){
+        return;
+      }
+      clause[size++] = literal;
+    }
+    if (size == 0){
+      unsatisfiable = true;
+      return;
+    }
+    if (size == 1){
+      assign(clause[0]);
+      return;
+    }
+    store(Arrays.copyOf(clause, size));
+  }
+
+  private void store(int[] clause){
+    if (clauseCount == clauses.length){
+      clauses = Arrays.copyOf(clauses, 2 * clauseCount);
+      signatures = Arrays.copyOf(signatures, 2 * clauseCount);
+      queued = Arrays.copyOf(queued, 2 * clauseCount);
+    }
+    int c = clauseCount++;
+    clauses[c] = clause;
+    signatures[c] = signature(clause);
+    for (int literal : clause){
+      if (occurrenceCounts[literal] == occurrences[literal].length){
+        occurrences[literal] = Arrays.copyOf(occurrences[literal], 2 * occurrenceCounts[literal]);
+      }
+      occurrences[literal][occurrenceCounts[literal]++] = c;
+    }
+    enqueue(c);
+  }
+
+  // One bit per variable, so that a clause can only subsume clauses whose signature covers its own.
+  private static long signature(int[] clause){
+    long signature = 0;
+    for (int literal : clause){
+      signature |= 1L << (ClauseDatabase.variable(literal) & 63);
+    }
+    return signature;
+  }
+
+  private void enqueue(int c){
+    if (!queued[c]){
+      queued[c] = true;
+      queue.add(c);
+    }
+  }
+
+  private byte value(int literal){
+    byte value = values[ClauseDatabase.variable(literal)];
+    return ClauseDatabase.isNegated(literal) ? (byte) -value : value;
+  }
+
+  private void assign(int literal){
+    byte value = value(literal);
+    if (value == Propagator.FALSE){
+      unsatisfiable = true;
+    } else if (value == Propagator.UNASSIGNED){
+      values[ClauseDatabase.variable(literal)] = ClauseDatabase.isNegated(literal) ? Propagator.FALSE : Propagator.TRUE;
+      units.add(literal);
+    }
+  }
+
+  // Removes the clauses satisfied by the units, and the false literals from the others.
+  private void propagate(){
+    while (!units.isEmpty() && !unsatisfiable){
+      int literal = units.poll();
+      for (int c : snapshot(literal)){
+        remove(c);
+      }
+      for (int c : snapshot(ClauseDatabase.negate(literal))){
+        strengthen(c, ClauseDatabase.negate(literal));
+        if (unsatisfiable){
+          return;
+        }
+      }
+    }
+  }
+
+  private int[] snapshot(int literal){
+    effort += occurrenceCounts[literal];
+    return Arrays.copyOf(occurrences[literal], occurrenceCounts[literal]);
+  }
+
+  private void remove(int c){
+    if (clauses[c] == null){
+      return;
+    }
+    for (int literal : clauses[c]){
+      removeOccurrence(literal, c);
+    }
+    clauses[c] = null;
+  }
+
+  private void removeOccurrence(int literal, int c){
+    int[] list = occurrences[literal];
+    int count = occurrenceCounts[literal];
+    for (int i = 0; i < count; i++){
+      if (list[i] == c){
+        list[i] = list[count - 1];
+        occurrenceCounts[literal]--;
+        return;
+      }
+    }
+  }
+
+  // Removes one literal from a clause, turning it into a unit if one literal is left.
+  private void strengthen(int c, int literal){
+    int[] clause = clauses[c];
+    if (clause == null){
+      return;
+    }
+    int[] shorter = new int[clause.length - 1];
+    int size = 0;
+    for (int l : clause){
+      if (l != literal){
+        shorter[size++] = l;
+      }
+    }
+    removeOccurrence(literal, c);
+    if (shorter.length == 1){
+      remove(c);
+      assign(shorter[0]);
+      return;
+    }
+    clauses[c] = shorter;
+    signatures[c] = signature(shorter);
+    enqueue(c);
+  }
+
+  /**
+   * Uses every queued clause to remove the clauses it subsumes and to
+   * strengthen the clauses it subsumes with one literal negated.
+   **/
+  private void subsume(){
+    while (!queue.isEmpty() && !unsatisfiable && !outOfBudget()){
+      int c = queue.poll();
+      queued[c] = false;
+      int[] clause = clauses[c];
+      if (clause == null){
+        continue;
+      }
+      // Every clause C subsumes, even with one literal negated, contains a literal of the variable with the fewest occurrences.
+      int best = clause[0];
+      for (int literal : clause){
+        if (occurrenceCounts[literal] + occurrenceCounts[literal ^ 1] < occurrenceCounts[best] + occurrenceCounts[best ^ 1]){
+          best = literal;
+        }
+      }
+      for (int literal : new int[]{best, ClauseDatabase.negate(best)}){
+        for (int d : snapshot(literal)){
+          if (clauses[c] != clause){
+            // The clause itself was strengthened or removed; it is queued again if it still exists.
+            break;
+          }
+          if (d == c || clauses[d] == null || clauses[d].length < clause.length || (signatures[c] & ~signatures[d]) != 0){
+            continue;
+          }
+          int result = subsumes(clause, clauses[d]);
+          if (result == -1){
+            remove(d);
+          } else if (result >= 0){
+            strengthen(d, result);
+            propagate();
+            if (unsatisfiable){
+              return;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks whether a clause subsumes another, allowing one literal of it to
+   * occur negated.
+   *
+   * @return int -1 if c is a subset of d, the literal of d to remove if c
+   * with that literal negated is, and -2 otherwise.
+   **/
+  private int subsumes(int[] c, int[] d){
+    effort += c.length + d.length;
+    stamp++;
+    for (int literal : d){
+      marks[literal] = stamp;
+    }
+    int result = -1;
+    for (int literal : c){
+      if (marks[literal] == stamp){
+        continue;
+      }
+      if (result == -1 && marks[ClauseDatabase.negate(literal)] == stamp){
+        result = ClauseDatabase.negate(literal);
+        continue;
+      }
+      return -2;
+    }
+    return result;
+  }
+
+  /**
+   * Tries to eliminate every variable, those with the fewest occurrences
+   * first.
+   *
+   * @return boolean true if a variable was eliminated.
+   **/
+  private boolean eliminate(){
+    long[] order = new long[variables];
+    for (int v = 0; v < variables; v++){
+      int positive = ClauseDatabase.literal(v, false);
+      order[v] = ((long) (occurrenceCounts[positive] + occurrenceCounts[positive ^ 1]) << 32) | v;
+    }
+    Arrays.sort(order);
+    boolean progress = false;
+    for (long key : order){
+      if (unsatisfiable || outOfBudget()){
+        break;
+      }
+      int v = (int) key;
+      if (!eliminated[v] && values[v] == Propagator.UNASSIGNED && eliminate(v)){
+        progress = true;
+        propagate();
+      }
+    }
+    return progress;
+  }
+
+  private boolean eliminate(int v){
+    int positive = ClauseDatabase.literal(v, false);
+    int negative = ClauseDatabase.negate(positive);
+    int[] pos = snapshot(positive);
+    int[] neg = snapshot(negative);
+    if (pos.length + neg.length == 0 || (long) pos.length * neg.length > MAX_RESOLUTIONS){
+      return false;
+    }
+    List<int[]> resolvents = new ArrayList<>();
+    for (int p : pos){
+      for (int n : neg){
+        int[] resolvent = resolve(clauses[p], clauses[n], v);
+        if (resolvent == null){
+          continue;
+        }
+        if (resolvent.length > MAX_RESOLVENT_LENGTH || resolvents.size() == pos.length + neg.length){
+          return false;
+        }
+        resolvents.add(resolvent);
+      }
+    }
+    for (int c : pos){
+      stack.add(pivotFirst(clauses[c], positive));
+      remove(c);
+    }
+    for (int c : neg){
+      stack.add(pivotFirst(clauses[c], negative));
+      remove(c);
+    }
+    eliminated[v] = true;
+    eliminatedCount++;
+    for (int[] resolvent : resolvents){
+      add(resolvent);
+    }
+    return true;
+  }
+
+  // The resolvent of two clauses on a variable, or null if it is a tautology.
+  private int[] resolve(int[] p, int[] n, int v){
+    effort += p.length + n.length;
+    stamp++;
+    int[] resolvent = new int[p.length + n.length - 2];
+    int size = 0;
+    for (int literal : p){
+      if (ClauseDatabase.variable(literal) != v){
+        marks[literal] = stamp;
+        resolvent[size++] = literal;
+      }
+    }
+    for (int literal : n){
+      if (ClauseDatabase.variable(literal) == v || marks[literal] == stamp){
+        continue;
+      }
+      if (marks[ClauseDatabase.negate(literal)] == stamp){
+        return null;
+      }
+      resolvent[size++] = literal;
+    }
+    return Arrays.copyOf(resolvent, size);
+  }
+
+  private static int[] pivotFirst(int[] clause, int pivot){
+    int[] copy = clause.clone();
+    for (int i = 0; i < copy.length; i++){
+      if (copy[i] == pivot){
+        copy[i] = copy[0];
+        copy[0] = pivot;
+      }
+    }
+    return copy;
+  }
+
+}
@@ -0,0 +1,198 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes a proof of unsatisfiability in binary DRAT, which checkers such as
+ * drat-trim verify against the clauses in DIMACS CNF. Every lemma is 'a'
+ * followed by its literals and a 0, and every deletion is 'd' followed by
+ * the same. DIMACS literal l is written as the unsigned number 2l, or -2l+1
+ * if it is negative, in 7-bit groups with the lowest first and the high bit
+ * set on all but the last.
+ * <p>
+ * The solver thread encodes into large direct buffers, and a background
+ * thread writes the full ones to the file or pipe, so the solver only waits
+ * when the disk falls behind by more than all the buffers. Errors of the
+ * background thread are thrown by close().
+ **/
+class ProofWriter implements Closeable{
+
+  private static final int BUFFER_SIZE = 1 << 22;
+  private static final int BUFFERS = 3;
+  private static final byte ADD = 'a';
+  private static final byte DELETE = 'd';
+  // Sent to the flusher after the last buffer.
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  private final WritableByteChannel channel;
+  private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFERS);
+  private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(BUFFERS + 1);
+  private final Thread flusher;
+  private volatile IOException failure;
+  private ByteBuffer buffer;
+  private boolean closed;
+
+  /**
+   * @param file the proof file, which is replaced, or a named pipe.
+   **/
+  public ProofWriter(Path file) throws IOException{
+    this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+  }
+
+  /**
+   * @param channel where the proof is written; it is closed with the writer.
+   **/
+  public ProofWriter(WritableByteChannel channel){
+    this.channel = channel;
+    for (int i = 1; i < BUFFERS; i++){
+      free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+    }
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.flusher = new Thread(this::flush, "proof-flusher");
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+  }
+
+  /**
+   * Adds a lemma, which must follow from the clauses and the lemmas before
+   * it by unit propagation (or be a resolution asymmetric tautology).
+   *
+   * @param literals the literals of the lemma, as 2*variable+sign.
+   * @param from the index of the first literal.
+   * @param length the number of literals; 0 for the empty clause, which
+   * ends a refutation.
+   **/
+  public void add(int[] literals, int from, int length){
+    write(ADD, literals, from, length);
+  }
+
+  /**
+   * Deletes a clause or lemma, which the checker then no longer uses.
+   **/
+  public void delete(int[] literals, int from, int length){
+    write(DELETE, literals, from, length);
+  }
+
+  private void write(byte kind, int[] literals, int from, int length){
+    if (buffer.remaining() < 1){
+      swap();
+    }
+    buffer.put(kind);
+    for (int i = from; i < from + length; i++){
+      // The literal of variable v is 2v+2 or 2v+3 in binary DRAT, as variables count from 1.
+      int value = literals[i] + 2;
+      if (buffer.remaining() < 5){
+        swap();
+      }
+      while ((value & ~0x7f) != 0){
+        buffer.put((byte) ((value & 0x7f) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+    if (buffer.remaining() < 1){
+      swap();
+    }
+    buffer.put((byte) 0);
+  }
+
+  // Hands the current buffer to the flusher and takes an empty one.
+  private void swap(){
+    buffer.flip();
+    transfer(full, buffer);
+    boolean interrupted = false;
+    while (true){
+      try {
+        buffer = free.take();
+        break;
+      } catch (InterruptedException e){
+        interrupted = true;
+      }
+    }
+    if (interrupted){
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Waits for room even if interrupted, as a lost buffer would corrupt the proof.
+  private static void transfer(BlockingQueue<ByteBuffer> queue, ByteBuffer buffer){
+    boolean interrupted = false;
+    while (true){
+      try {
+        queue.put(buffer);
+        break;
+      } catch (InterruptedException e){
+        interrupted = true;
+      }
+    }
+    if (interrupted){
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // The background thread: writes the full buffers in order and returns them.
+  private void flush(){
+    while (true){
+      ByteBuffer next;
+      try {
+        next = full.take();
+      } catch (InterruptedException e){
+        continue;
+      }
+      if (next == END){
+        return;
+      }
+      try {
+        while (failure == null && next.hasRemaining()){
+          channel.write(next);
+        }
+      } catch (IOException e){
+        // Later buffers are still taken and returned, so the solver never waits for ever.
+        failure = e;
+      }
+      next.clear();
+      transfer(free, next);
+    }
+  }
+
+  /**
+   * Writes what is left, waits for the background thread and closes the
+   * file.
+   *
+   * @throws IOException if any part of the proof could not be written.
+   **/
+  @Override
+  public void close() throws IOException{
+    if (closed){
+      return;
+    }
+    closed = true;
+    if (buffer.position() > 0){
+      buffer.flip();
+      transfer(full, buffer);
+    }
+    transfer(full, END);
+    boolean interrupted = false;
+    while (flusher.isAlive()){
+      try {
+        flusher.join();
+      } catch (InterruptedException e){
+        interrupted = true;
+      }
+    }
+    if (interrupted){
+      Thread.currentThread().interrupt();
+    }
+    channel.close();
+    if (failure != null){
+      throw failure;
+    }
+  }
+
+}
@@ -0,0 +1,360 @@
+import java.util.Arrays;
+
+/**
+ * Unit propagation on a clause database using two watched literals per
+ * clause.
+ * <p>
+ * The two watched literals of a clause are kept in its first two arena
+ * positions. When a literal becomes false, only the clauses watching it are
+ * visited; each either finds a new literal to watch, becomes unit and
+ * enqueues its remaining watch, or is reported as a conflict. Assignments
+ * are recorded on a trail split into decision levels, and backtracking pops
+ * the trail without touching the watches.
+ **/
+class Propagator{
+
+  public static final byte UNASSIGNED = 0;
+  public static final byte TRUE = 1;
+  public static final byte FALSE = -1;
+
+  public static final int NO_CONFLICT = -1;
+  public static final int NO_REASON = -1;
+
+  private final ClauseDatabase clauses;
+  private byte[] values;
+  private int[] levels;
+  private int[] reasons;
+  private int[] trail;
+  private int trailSize;
+  private int queueHead;
+  private long propagations;
+
+  // The trail size at the start of decision level i+1.
+  private int[] trailLimits;
+  private int decisionLevel;
+
+  // Clauses watching literal l are watches[l][0..watchCount[l]-1].
+  private int[][] watches;
+  private int[] watchCount;
+
+  private boolean inconsistent;
+
+  private VariableOrder order;
+
+  public Propagator(ClauseDatabase clauses){
+    this.clauses = clauses;
+    int variables = clauses.variables();
+    this.values = new byte[variables];
+    this.levels = new int[variables];
+    this.reasons = new int[variables];
+    this.trail = new int[variables];
+    this.trailLimits = new int[variables + 1];
+    this.watches = new int[2 * variables][];
+    this.watchCount = new int[2 * variables];
+    for (int l = 0; l < watches.length; l++){
+      watches[l] = new int[4];
+    }
+    for (int c = 0; c < clauses.size(); c++){
+      attach(c);
+    }
+  }
+
+  /**
+   * Makes room for variables added to the clause database after the
+   * propagator was created. New variables are unassigned.
+   *
+   * @param variables the new number of variables.
+   **/
+  public void ensureVariables(int variables){
+    if (variables <= values.length){
+      return;
+    }
+    int old = values.length;
+    values = Arrays.copyOf(values, variables);
+    levels = Arrays.copyOf(levels, variables);
+    reasons = Arrays.copyOf(reasons, variables);
+    trail = Arrays.copyOf(trail, variables);
+    if (trailLimits.length < variables + 1){
+      trailLimits = Arrays.copyOf(trailLimits, variables + 1);
+    }
+    watches = Arrays.copyOf(watches, 2 * variables);
+    watchCount = Arrays.copyOf(watchCount, 2 * variables);
+    for (int l = 2 * old; l < watches.length; l++){
+      watches[l] = new int[4];
+    }
+  }
+
+  /**
+   * Starts watching a clause. Clauses with less than two literals have
+   * nothing to watch; their literal is assigned instead, or the propagator
+   * is marked as inconsistent if the clause is empty or already false.
+   *
+   * @param clause index of the clause in the clause database.
+   **/
+  public void attach(int clause){
+    int length = clauses.length(clause);
+    if (length == 0){
+      inconsistent = true;
+      return;
+    }
+    if (length == 1){
+      if (!assign(clauses.literal(clause, 0))){
+        inconsistent = true;
+      }
+      return;
+    }
+    watch(clauses.literal(clause, 0), clause);
+    watch(clauses.literal(clause, 1), clause);
+  }
+
+  private void watch(int literal, int clause){
+    if (watchCount[literal] == watches[literal].length){
+      watches[literal] = Arrays.copyOf(watches[literal], watchCount[literal] * 2);
+    }
+    watches[literal][watchCount[literal]++] = clause;
+  }
+
+  /**
+   * Sets the branching order to notify when variables are unassigned, so it
+   * can save their phase and make them available for decisions again.
+   **/
+  public void setVariableOrder(VariableOrder order){
+    this.order = order;
+  }
+
+  /**
+   * True if the clause database contains an empty clause or contradicting
+   * unit clauses, in which case no assignment can satisfy it.
+   **/
+  public boolean isInconsistent(){
+    return inconsistent;
+  }
+
+  public byte value(int literal){
+    byte value = values[ClauseDatabase.variable(literal)];
+    return ClauseDatabase.isNegated(literal) ? (byte) -value : value;
+  }
+
+  public int trailSize(){
+    return trailSize;
+  }
+
+  public int trail(int index){
+    return trail[index];
+  }
+
+  /**
+   * Returns the trail size at the end of the given decision level, which is
+   * what it is cut back to when backtracking to that level.
+   **/
+  public int trailSize(int level){
+    return (level < decisionLevel) ? trailLimits[level] : trailSize;
+  }
+
+  /**
+   * The number of assignments propagated so far, over all calls.
+   **/
+  public long propagations(){
+    return propagations;
+  }
+
+  public int decisionLevel(){
+    return decisionLevel;
+  }
+
+  public int level(int variable){
+    return levels[variable];
+  }
+
+  /**
+   * Returns the clause that implied the assignment of the variable, or
+   * NO_REASON for decisions and unit clauses.
+   **/
+  public int reason(int variable){
+    return reasons[variable];
+  }
+
+  /**
+   * Returns the decision literal that opened the given level.
+   *
+   * @param level a decision level between 1 and the current level.
+   * @return int the decision literal.
+   **/
+  public int decision(int level){
+    return trail[trailLimits[level - 1]];
+  }
+
+  /**
+   * Opens a new decision level and assigns the decision literal on it.
+   *
+   * @param literal an unassigned literal.
+   **/
+  public void decide(int literal){
+    newDecisionLevel();
+    assign(literal, NO_REASON);
+  }
+
+  /**
+   * Opens a decision level without a decision, for an assumption that is
+   * already true.
+   **/
+  public void newDecisionLevel(){
+    if (decisionLevel == trailLimits.length){
+      trailLimits = Arrays.copyOf(trailLimits, 2 * trailLimits.length);
+    }
+    trailLimits[decisionLevel++] = trailSize;
+  }
+
+  public boolean assign(int literal){
+    return assign(literal, NO_REASON);
+  }
+
+  /**
+   * Makes the literal true and queues it for propagation.
+   *
+   * @param literal the literal to assign.
+   * @param reason the clause implying the literal, or NO_REASON.
+   * @return boolean False if the literal is already false, else true.
+   **/
+  public boolean assign(int literal, int reason){
+    byte value = value(literal);
+    if (value != UNASSIGNED){
+      return value == TRUE;
+    }
+    values[ClauseDatabase.variable(literal)] = ClauseDatabase.isNegated(literal) ? FALSE : TRUE;
+    levels[ClauseDatabase.variable(literal)] = decisionLevel;
+    reasons[ClauseDatabase.variable(literal)] = reason;
+    trail[trailSize++] = literal;
+    return true;
+  }
+
+  /**
+  * Propagates all queued assignments until no clause is unit.
+  *
+  * @return int the index of a falsified clause, or NO_CONFLICT.
+  * @see https://en.wikipedia.org/wiki/Unit_propagation
+  */
+  public int propagate(){
+    int[] arena = clauses.arena();
+    while (queueHead < trailSize){
+      int falseLiteral = ClauseDatabase.negate(trail[queueHead++]);
+      propagations++;
+      int[] watching = watches[falseLiteral];
+      int count = watchCount[falseLiteral];
+      int i = 0;
+      int j = 0;
+      while (i < count){
+        int clause = watching[i++];
+        int offset = clauses.offset(clause);
+        int end = offset + clauses.length(clause);
+
+        // Keep the falsified watch in the second position.
+        if (arena[offset] == falseLiteral){
+          arena[offset] = arena[offset + 1];
+          arena[offset + 1] = falseLiteral;
+        }
+        int first = arena[offset];
+        if (value(first) == TRUE){
+          watching[j++] = clause;
+          continue;
+        }
+
+        // Look for a literal that is not false to watch instead.
+        boolean moved = false;
+        for (int k = offset + 2; k < end; k++){
+          if (value(arena[k]) != FALSE){
+            arena[offset + 1] = arena[k];
+            arena[k] = falseLiteral;
+            watch(arena[offset + 1], clause);
+            moved = true;
+            break;
+          }
+        }
+        if (moved){
+          continue;
+        }
+
+        // The clause is unit or falsified, and keeps its watches.
+        watching[j++] = clause;
+        if (!assign(first, clause)){
+          while (i < count){
+            watching[j++] = watching[i++];
+          }
+          watchCount[falseLiteral] = j;
+          queueHead = trailSize;
+          return clause;
+        }
+      }
+      watchCount[falseLiteral] = j;
+    }
+    return NO_CONFLICT;
+  }
+
+  /**
+   * True if the clause is the reason of a current assignment, in which case
+   * it must not be removed.
+   **/
+  public boolean isLocked(int clause){
+    if (clauses.length(clause) == 0){
+      return false;
+    }
+    int first = clauses.literal(clause, 0);
+    return value(first) == TRUE && reasons[ClauseDatabase.variable(first)] == clause;
+  }
+
+  /**
+   * Follows a compaction of the clause database. Reasons are renumbered
+   * and the watch lists are rebuilt from the first two literals of every
+   * clause, which are still the watched ones.
+   *
+   * @param map new index of every old clause, as returned by ClauseDatabase.compact().
+   **/
+  public void relocate(int[] map){
+    for (int i = 0; i < trailSize; i++){
+      int variable = ClauseDatabase.variable(trail[i]);
+      if (reasons[variable] != NO_REASON){
+        reasons[variable] = map[reasons[variable]];
+      }
+    }
+    Arrays.fill(watchCount, 0);
+    for (int c = 0; c < clauses.size(); c++){
+      if (clauses.length(c) >= 2){
+        watch(clauses.literal(c, 0), c);
+        watch(clauses.literal(c, 1), c);
+      }
+    }
+  }
+
+  /**
+   * Copies the current assignment, indexed by variable.
+   *
+   * @return byte[] TRUE, FALSE or UNASSIGNED for every variable.
+   **/
+  public byte[] model(){
+    return Arrays.copyOf(values, values.length);
+  }
+
+  /**
+   * Unassigns every literal assigned above the given decision level.
+   *
+   * @param level the decision level to return to.
+   **/
+  public void backtrack(int level){
+    if (level >= decisionLevel){
+      return;
+    }
+    int size = trailLimits[level];
+    decisionLevel = level;
+    while (trailSize > size){
+      int literal = trail[--trailSize];
+      values[ClauseDatabase.variable(literal)] = UNASSIGNED;
+      if (order != null){
+        order.unassigned(literal);
+      }
+    }
+    if (queueHead > trailSize){
+      queueHead = trailSize;
+    }
+  }
+
+}
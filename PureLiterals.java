@@ -0,0 +1,152 @@
+/**
+ * Finds the pure literals of a formula under the assignment on a
+ * propagator trail, without rescanning the clauses.
+ * <p>
+ * Every literal counts the clauses it occurs in that are not yet
+ * satisfied, and every clause counts its true literals. Literals are
+ * folded into the counters as they appear on the trail, and taken out
+ * again in reverse order when the trail is cut back, so each assignment
+ * costs one pass over the occurrences of its literal. A variable is queued
+ * as a candidate whenever the count of one of its literals drops to zero
+ * or it becomes unassigned, and is checked when the queue is drained.
+ **/
+class PureLiterals{
+
+  private final ClauseDatabase clauses;
+  private final Propagator propagator;
+
+  // Clauses containing literal l are occurrences[start[l]..start[l+1]-1].
+  private final int[] start;
+  private final int[] occurrences;
+
+  // Unsatisfied clauses per literal, and true literals per clause.
+  private final int[] counts;
+  private final int[] trueLiterals;
+
+  // Trail entries below this index are included in the counters.
+  private int processed;
+
+  private final int[] queue;
+  private final boolean[] queued;
+  private int queueSize;
+
+  /**
+   * @param clauses the clauses the propagator works on; they must not change.
+   * @param propagator the propagator whose trail is followed.
+   **/
+  public PureLiterals(ClauseDatabase clauses, Propagator propagator){
+    this.clauses = clauses;
+    this.propagator = propagator;
+    int variables = clauses.variables();
+    this.counts = new int[2 * variables];
+    this.trueLiterals = new int[clauses.size()];
+    for (int c = 0; c < clauses.size(); c++){
+      for (int i = 0; i < clauses.length(c); i++){
+        counts[clauses.literal(c, i)]++;
+      }
+    }
+    this.start = new int[2 * variables + 1];
+    for (int l = 0; l < counts.length; l++){
+      start[l + 1] = start[l] + counts[l];
+    }
+    this.occurrences = new int[start[counts.length]];
+    int[] fill = new int[counts.length];
+    for (int c = 0; c < clauses.size(); c++){
+      for (int i = 0; i < clauses.length(c); i++){
+        int literal = clauses.literal(c, i);
+        occurrences[start[literal] + fill[literal]++] = c;
+      }
+    }
+    this.queue = new int[variables];
+    this.queued = new boolean[variables];
+    for (int v = 0; v < variables; v++){
+      enqueue(v);
+    }
+  }
+
+  /**
+   * Assigns pure literals until none are left. Pure literals are literals
+   * whose negation occurs in no clause that is not yet satisfied. They only
+   * satisfy clauses, so they never cause a conflict.
+   *
+   * @return int the number of literals assigned.
+   **/
+  public int assign(){
+    int assigned = 0;
+    update();
+    while (queueSize > 0){
+      int v = queue[--queueSize];
+      queued[v] = false;
+      int positive = ClauseDatabase.literal(v, false);
+      if (propagator.value(positive) != Propagator.UNASSIGNED){
+        continue;
+      }
+      int negative = ClauseDatabase.negate(positive);
+      int literal;
+      if (counts[negative] == 0 && counts[positive] > 0){
+        literal = positive;
+      } else if (counts[positive] == 0 && counts[negative] > 0){
+        literal = negative;
+      } else {
+        continue;
+      }
+      propagator.assign(literal);
+      assigned++;
+      update();
+    }
+    return assigned;
+  }
+
+  /**
+   * Backtracks the propagator, taking the literals it unassigns out of the
+   * counters first.
+   *
+   * @param level the decision level to return to.
+   **/
+  public void backtrack(int level){
+    int size = propagator.trailSize(level);
+    while (processed > size){
+      unsatisfy(propagator.trail(--processed));
+    }
+    propagator.backtrack(level);
+  }
+
+  // Adds the trail entries since the last call to the counters.
+  private void update(){
+    for (; processed < propagator.trailSize(); processed++){
+      int literal = propagator.trail(processed);
+      for (int i = start[literal]; i < start[literal + 1]; i++){
+        int c = occurrences[i];
+        if (trueLiterals[c]++ == 0){
+          for (int j = 0; j < clauses.length(c); j++){
+            int other = clauses.literal(c, j);
+            if (--counts[other] == 0){
+              enqueue(ClauseDatabase.variable(other));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private void unsatisfy(int literal){
+    for (int i = start[literal]; i < start[literal + 1]; i++){
+      int c = occurrences[i];
+      if (--trueLiterals[c] == 0){
+        for (int j = 0; j < clauses.length(c); j++){
+          counts[clauses.literal(c, j)]++;
+        }
+      }
+    }
+    // The variable may be pure again on the lower level.
+    enqueue(ClauseDatabase.variable(literal));
+  }
+
+  private void enqueue(int variable){
+    if (!queued[variable]){
+      queued[variable] = true;
+      queue[queueSize++] = variable;
+    }
+  }
+
+}
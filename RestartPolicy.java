@@ -0,0 +1,214 @@
+/**
+ * Decides when the CDCL search should restart from decision level 0.
+ * Learned clauses, activities and saved phases are kept over restarts, so a
+ * restart only drops the current decisions.
+ **/
+interface RestartPolicy{
+
+  /**
+   * Records a conflict.
+   *
+   * @param lbd the literal block distance of the clause learned from it.
+   * @param trailSize the number of assigned literals when it happened.
+   **/
+  void conflict(int lbd, int trailSize);
+
+  boolean shouldRestart();
+
+  void restarted();
+
+  /**
+   * Looks up a policy by its command line name: luby, geometric, glucose or
+   * none.
+   *
+   * @param name the name of the policy.
+   * @return RestartPolicy a new policy with default parameters.
+   * @throws IllegalArgumentException if no policy has the name.
+   **/
+  static RestartPolicy named(String name){
+    switch (name){
+      case "luby":
+        return new Luby(100);
+      case "geometric":
+        return new Geometric(100, 1.5);
+      case "glucose":
+        return new Glucose();
+      case "none":
+        return new Never();
+      default:
+        throw new IllegalArgumentException("Not a restart policy: " + name);
+    }
+  }
+
+  /**
+   * Restarts after unit * luby(i) conflicts, where luby is the sequence
+   * 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...
+   **/
+  class Luby implements RestartPolicy{
+
+    private final int unit;
+    private int restarts;
+    private long conflicts;
+    private long limit;
+
+    public Luby(int unit){
+      this.unit = unit;
+      this.limit = unit;
+    }
+
+    public void conflict(int lbd, int trailSize){
+      conflicts++;
+    }
+
+    public boolean shouldRestart(){
+      return conflicts >= limit;
+    }
+
+    public void restarted(){
+      restarts++;
+      conflicts = 0;
+      limit = (long) (unit * luby(restarts));
+    }
+
+    // The i-th element of the Luby sequence, counting from 0.
+    static double luby(int i){
+      int size = 1;
+      int sequence = 0;
+      while (size < i + 1){
+        sequence++;
+        size = 2 * size + 1;
+      }
+      while (size - 1 != i){
+        size = (size - 1) >> 1;
+        sequence--;
+        i = i % size;
+      }
+      return Math.pow(2, sequence);
+    }
+
+  }
+
+  /**
+   * Restarts after first conflicts, and multiplies the interval by factor
+   * after every restart.
+   **/
+  class Geometric implements RestartPolicy{
+
+    private final double factor;
+    private double limit;
+    private long conflicts;
+
+    public Geometric(int first, double factor){
+      this.factor = factor;
+      this.limit = first;
+    }
+
+    public void conflict(int lbd, int trailSize){
+      conflicts++;
+    }
+
+    public boolean shouldRestart(){
+      return conflicts >= limit;
+    }
+
+    public void restarted(){
+      conflicts = 0;
+      limit *= factor;
+    }
+
+  }
+
+  /**
+   * Dynamic restarts as in Glucose. The search restarts when the average
+   * LBD of the recently learned clauses is clearly worse than the average
+   * over the whole run. A restart is blocked when the trail is much longer
+   * than usual, as the solver is then likely approaching a model.
+   **/
+  class Glucose implements RestartPolicy{
+
+    private static final double K = 0.8;
+    private static final double R = 1.4;
+    private static final int BLOCKING_CONFLICTS = 10000;
+
+    private final BoundedQueue recentLbd = new BoundedQueue(50);
+    private final BoundedQueue recentTrail = new BoundedQueue(5000);
+    private long conflicts;
+    private long lbdSum;
+
+    public void conflict(int lbd, int trailSize){
+      conflicts++;
+      lbdSum += lbd;
+      recentTrail.push(trailSize);
+      if (conflicts > BLOCKING_CONFLICTS && recentLbd.isFull() && recentTrail.isFull() && trailSize > R * recentTrail.average()){
+        recentLbd.clear();
+      }
+      recentLbd.push(lbd);
+    }
+
+    public boolean shouldRestart(){
+      return recentLbd.isFull() && recentLbd.average() * K > (double) lbdSum / conflicts;
+    }
+
+    public void restarted(){
+      recentLbd.clear();
+    }
+
+  }
+
+  class Never implements RestartPolicy{
+
+    public void conflict(int lbd, int trailSize){
+    }
+
+    public boolean shouldRestart(){
+      return false;
+    }
+
+    public void restarted(){
+    }
+
+  }
+
+  /**
+   * Fixed size window over the last values pushed, with a running sum.
+   **/
+  class BoundedQueue{
+
+    private final int[] values;
+    private int first;
+    private int size;
+    private long sum;
+
+    BoundedQueue(int capacity){
+      this.values = new int[capacity];
+    }
+
+    void push(int value){
+      if (size == values.length){
+        sum -= values[first];
+        values[first] = value;
+        first = (first + 1) % values.length;
+      } else {
+        values[(first + size) % values.length] = value;
+        size++;
+      }
+      sum += value;
+    }
+
+    boolean isFull(){
+      return size == values.length;
+    }
+
+    double average(){
+      return (double) sum / size;
+    }
+
+    void clear(){
+      first = 0;
+      size = 0;
+      sum = 0;
+    }
+
+  }
+
+}
@@ -0,0 +1,403 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Results of earlier searches, keyed by a fingerprint of the clause set, so
+ * that a formula submitted again is answered without a search. The
+ * fingerprint is taken of a canonical form, in which the literals of each
+ * clause and the clauses themselves are sorted and duplicates removed, so
+ * clause and literal order do not matter.
+ * <p>
+ * With renumbering, the variables are also numbered by a colour computed
+ * from their occurrences, which does not depend on their names. Formulas
+ * that are renamings of each other then get the same fingerprint, as long
+ * as the colours tell their variables apart; when they do not, the formulas
+ * are only missed. Equal fingerprints mean equal canonical forms, so a
+ * cached model is mapped back through the renumbering, and is checked
+ * against the clauses before it is returned.
+ * <p>
+ * Entries are kept in memory up to a size in bytes, evicting the least
+ * recently used, and written through to a directory if one is given, where
+ * entries evicted from memory are found again. The cache is thread-safe.
+ **/
+class ResultCache{
+
+  // The bytes an entry takes besides its model.
+  private static final long ENTRY_BYTES = 96;
+  private static final int COLOUR_ROUNDS = 3;
+
+  private final long capacity;
+  private final Path directory;
+  private final boolean renumber;
+  private final LinkedHashMap<Fingerprint, Answer> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+  private long hits;
+  private long misses;
+
+  /**
+   * @param capacity the bytes the entries in memory may take.
+   * @param directory where entries are kept between runs, or null for none.
+   * @param renumber true to renumber the variables, so that renamed
+   * formulas are found.
+   **/
+  public ResultCache(long capacity, Path directory, boolean renumber) throws IOException{
+    this.capacity = capacity;
+    this.directory = directory;
+    this.renumber = renumber;
+    if (directory != null){
+      Files.createDirectories(directory);
+    }
+  }
+
+  /**
+   * A 128-bit fingerprint of a canonical clause set, with the renumbering
+   * that took the clauses there.
+   **/
+  static final class Fingerprint{
+
+    final long high;
+    final long low;
+    // The variable of the clauses that is canonical variable i.
+    final int[] variables;
+
+    Fingerprint(long high, long low, int[] variables){
+      this.high = high;
+      this.low = low;
+      this.variables = variables;
+    }
+
+    @Override
+    public boolean equals(Object o){
+      return o instanceof Fingerprint && ((Fingerprint) o).high == high && ((Fingerprint) o).low == low;
+    }
+
+    @Override
+    public int hashCode(){
+      return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString(){
+      return String.format("%016x%016x", high, low);
+    }
+
+  }
+
+  /**
+   * A cached result: CdclEngine.SATISFIABLE with a model, or UNSATISFIABLE.
+   **/
+  static final class Answer{
+
+    private final int result;
+    private final byte[] model;
+
+    Answer(int result, byte[] model){
+      this.result = result;
+      this.model = model;
+    }
+
+    public int result(){
+      return result;
+    }
+
+    /**
+     * The value of every variable, as Propagator.TRUE or FALSE, or null if
+     * the clauses are unsatisfiable.
+     **/
+    public byte[] model(){
+      return model;
+    }
+
+  }
+
+  /**
+   * Computes the canonical form of the clauses and its fingerprint. Learned
+   * and removed clauses are left out.
+   *
+   * @param clauses the clauses.
+   * @return Fingerprint the key of the clauses.
+   **/
+  public Fingerprint fingerprint(ClauseDatabase clauses){
+    int n = clauses.variables();
+    int[][] canonical = new int[clauses.size()][];
+    int count = 0;
+    for (int c = 0; c < clauses.size(); c++){
+      if (!clauses.isLearnt(c) && !clauses.isDeleted(c)){
+        canonical[count++] = clauses.clause(c);
+      }
+    }
+    canonical = Arrays.copyOf(canonical, count);
+
+    int[] variables = new int[n];
+    int[] rank = new int[n];
+    for (int v = 0; v < n; v++){
+      variables[v] = v;
+      rank[v] = v;
+    }
+    if (renumber){
+      long[] colours = colours(canonical, n);
+      Integer[] order = new Integer[n];
+      for (int v = 0; v < n; v++){
+        order[v] = v;
+      }
+      Arrays.sort(order, (a, b) -> (colours[a] != colours[b]) ? Long.compare(colours[a], colours[b]) : Integer.compare(a, b));
+      for (int i = 0; i < n; i++){
+        variables[i] = order[i];
+        rank[order[i]] = i;
+      }
+    }
+
+    for (int c = 0; c < count; c++){
+      int[] clause = canonical[c];
+      for (int i = 0; i < clause.length; i++){
+        clause[i] = ClauseDatabase.literal(rank[ClauseDatabase.variable(clause[i])], ClauseDatabase.isNegated(clause[i]));
+      }
+      Arrays.sort(clause);
+      int length = 0;
+      for (int i = 0; i < clause.length; i++){
+        if (length == 0 || clause[length - 1] != clause[i]){
+          clause[length++] = clause[i];
+        }
+      }
+      canonical[c] = (length == clause.length) ? clause : Arrays.copyOf(clause, length);
+    }
+    Arrays.sort(canonical, (a, b) -> (a.length != b.length) ? Integer.compare(a.length, b.length) : Arrays.compare(a, b));
+
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e){
+      // Every Java platform has MD5.
+      throw new IllegalStateException(e);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    buffer.putInt(n);
+    for (int c = 0; c < count; c++){
+      int[] clause = canonical[c];
+      if (c > 0 && Arrays.equals(clause, canonical[c - 1])){
+        continue;
+      }
+      if (buffer.remaining() < 4 * (clause.length + 1)){
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+        if (buffer.remaining() < 4 * (clause.length + 1)){
+          buffer = ByteBuffer.allocate(4 * (clause.length + 1));
+        }
+      }
+      buffer.putInt(clause.length);
+      for (int literal : clause){
+        buffer.putInt(literal);
+      }
+    }
+    buffer.flip();
+    digest.update(buffer);
+    ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+    return new Fingerprint(hash.getLong(), hash.getLong(), variables);
+  }
+
+  // Colours of the variables that only depend on how they occur, refined by the colours of their neighbours.
+  private static long[] colours(int[][] clauses, int n){
+    long[] colours = new long[n];
+    for (int[] clause : clauses){
+      for (int literal : clause){
+        colours[ClauseDatabase.variable(literal)] += mix(2L * clause.length + (ClauseDatabase.isNegated(literal) ? 1 : 0));
+      }
+    }
+    long[] next = new long[n];
+    for (int round = 0; round < COLOUR_ROUNDS; round++){
+      for (int v = 0; v < n; v++){
+        next[v] = mix(colours[v]);
+      }
+      for (int[] clause : clauses){
+        long sum = 0;
+        for (int literal : clause){
+          sum += occurrence(colours, literal);
+        }
+        for (int literal : clause){
+          // The other literals of the clause, with the polarity of this one.
+          next[ClauseDatabase.variable(literal)] += mix((sum - occurrence(colours, literal)) ^ (ClauseDatabase.isNegated(literal) ? 1 : 0));
+        }
+      }
+      long[] swap = colours;
+      colours = next;
+      next = swap;
+    }
+    return colours;
+  }
+
+  private static long occurrence(long[] colours, int literal){
+    return mix(colours[ClauseDatabase.variable(literal)] * 2 + (ClauseDatabase.isNegated(literal) ? 1 : 0));
+  }
+
+  // The finalizer of MurmurHash3.
+  private static long mix(long h){
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Looks up the result of clauses.
+   *
+   * @param fingerprint the fingerprint of the clauses.
+   * @param clauses the clauses, which a cached model must satisfy.
+   * @return Answer the result, with the model in the numbering of the
+   * clauses, or null if there is none.
+   **/
+  public Answer get(Fingerprint fingerprint, ClauseDatabase clauses){
+    Answer answer;
+    synchronized (this){
+      answer = entries.get(fingerprint);
+    }
+    if (answer == null && directory != null){
+      answer = read(fingerprint);
+      if (answer != null){
+        remember(fingerprint, answer);
+      }
+    }
+    if (answer != null && answer.result == CdclEngine.SATISFIABLE){
+      answer = map(answer, fingerprint, clauses);
+    }
+    synchronized (this){
+      if (answer == null){
+        misses++;
+      } else {
+        hits++;
+      }
+    }
+    return answer;
+  }
+
+  // The model in the numbering of the clauses, or null if it does not satisfy them.
+  private static Answer map(Answer cached, Fingerprint fingerprint, ClauseDatabase clauses){
+    if (cached.model.length != clauses.variables()){
+      return null;
+    }
+    byte[] model = new byte[cached.model.length];
+    for (int i = 0; i < model.length; i++){
+      model[fingerprint.variables[i]] = cached.model[i];
+    }
+    for (int c = 0; c < clauses.size(); c++){
+      if (clauses.isLearnt(c) || clauses.isDeleted(c)){
+        continue;
+      }
+      boolean satisfied = false;
+      for (int i = 0; i < clauses.length(c) && !satisfied; i++){
+        int literal = clauses.literal(c, i);
+        satisfied = model[ClauseDatabase.variable(literal)] == (ClauseDatabase.isNegated(literal) ? Propagator.FALSE : Propagator.TRUE);
+      }
+      if (!satisfied){
+        return null;
+      }
+    }
+    return new Answer(CdclEngine.SATISFIABLE, model);
+  }
+
+  /**
+   * Stores the result of a search.
+   *
+   * @param fingerprint the fingerprint of the clauses searched.
+   * @param result CdclEngine.SATISFIABLE or UNSATISFIABLE; others are not stored.
+   * @param model the model of a satisfiable result, in the numbering of the clauses.
+   **/
+  public void put(Fingerprint fingerprint, int result, byte[] model){
+    Answer answer;
+    if (result == CdclEngine.SATISFIABLE){
+      byte[] canonical = new byte[fingerprint.variables.length];
+      for (int i = 0; i < canonical.length; i++){
+        canonical[i] = model[fingerprint.variables[i]];
+      }
+      answer = new Answer(result, canonical);
+    } else if (result == CdclEngine.UNSATISFIABLE){
+      answer = new Answer(result, null);
+    } else {
+      return;
+    }
+    remember(fingerprint, answer);
+    if (directory != null){
+      write(fingerprint, answer);
+    }
+  }
+
+  private synchronized void remember(Fingerprint fingerprint, Answer answer){
+    Answer old = entries.put(fingerprint, answer);
+    bytes += size(answer) - ((old == null) ? 0 : size(old));
+    Iterator<Answer> eldest = entries.values().iterator();
+    while (bytes > capacity && eldest.hasNext()){
+      bytes -= size(eldest.next());
+      eldest.remove();
+    }
+  }
+
+  private static long size(Answer answer){
+    return ENTRY_BYTES + ((answer.model == null) ? 0 : answer.model.length);
+  }
+
+  private Path file(Fingerprint fingerprint){
+    return directory.resolve(fingerprint + ".result");
+  }
+
+  // An entry is written to a temporary file and moved in place, so it is never read half written.
+  private void write(Fingerprint fingerprint, Answer answer){
+    try {
+      Path temporary = Files.createTempFile(directory, fingerprint.toString(), ".tmp");
+      try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))){
+        out.writeByte(answer.result);
+        out.writeInt((answer.model == null) ? 0 : answer.model.length);
+        if (answer.model != null){
+          out.write(answer.model);
+        }
+      }
+      Files.move(temporary, file(fingerprint), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e){
+      throw new UncheckedIOException("Could not write to the result cache: " + e.getMessage(), e);
+    }
+  }
+
+  private Answer read(Fingerprint fingerprint){
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(file(fingerprint)))){
+      int result = in.readByte();
+      byte[] model = (result == CdclEngine.SATISFIABLE) ? new byte[in.readInt()] : null;
+      if (model != null){
+        in.readFully(model);
+      }
+      return new Answer(result, model);
+    } catch (NoSuchFileException e){
+      return null;
+    } catch (IOException e){
+      throw new UncheckedIOException("Could not read from the result cache: " + e.getMessage(), e);
+    }
+  }
+
+  public synchronized long hits(){
+    return hits;
+  }
+
+  public synchronized long misses(){
+    return misses;
+  }
+
+  /**
+   * The bytes the entries in memory take, by estimate.
+   **/
+  public synchronized long bytes(){
+    return bytes;
+  }
+
+}
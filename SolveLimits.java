@@ -0,0 +1,127 @@
+/**
+ * Resource limits of a search: a wall-clock time limit, budgets of
+ * conflicts, decisions and propagations, and a heap ceiling. Once a limit
+ * is reached, or interrupt() is called from any thread, every engine using
+ * the limits returns UNKNOWN at its next check.
+ * <p>
+ * Engines call exceeded() in their inner loops. The budgets are compared
+ * with the engine's own counters on every call, which are plain field
+ * reads; the clock and the heap are only looked at every CHECK_INTERVAL
+ * calls of an engine.
+ **/
+class SolveLimits{
+
+  private static final int CHECK_INTERVAL = 256;
+
+  private long timeLimit = Long.MAX_VALUE;
+  private long conflicts = Long.MAX_VALUE;
+  private long decisions = Long.MAX_VALUE;
+  private long propagations = Long.MAX_VALUE;
+  private long memory = Long.MAX_VALUE;
+
+  private volatile long deadline = Long.MAX_VALUE;
+  // Why the search was stopped, or null while it may go on.
+  private volatile String reason;
+
+  /**
+   * @param millis the wall-clock time a search may take.
+   **/
+  public void setTimeLimit(long millis){
+    this.timeLimit = (millis >= Long.MAX_VALUE / 1000000) ? Long.MAX_VALUE : millis * 1000000;
+  }
+
+  /**
+   * The budgets count per engine, so parallel engines get one each.
+   **/
+  public void setConflictLimit(long conflicts){
+    this.conflicts = conflicts;
+  }
+
+  public void setDecisionLimit(long decisions){
+    this.decisions = decisions;
+  }
+
+  public void setPropagationLimit(long propagations){
+    this.propagations = propagations;
+  }
+
+  /**
+   * @param bytes the heap the JVM may use before the search is stopped.
+   **/
+  public void setMemoryLimit(long bytes){
+    this.memory = bytes;
+  }
+
+  /**
+   * Starts the clock and clears an earlier stop; called when a search starts.
+   **/
+  public void start(){
+    reason = null;
+    deadline = (timeLimit == Long.MAX_VALUE) ? Long.MAX_VALUE : System.nanoTime() + timeLimit;
+  }
+
+  /**
+   * Stops the search. Can be called from any thread.
+   **/
+  public void interrupt(){
+    stop("interrupted");
+  }
+
+  public boolean isStopped(){
+    return reason != null;
+  }
+
+  /**
+   * @return String why the search was stopped, or null if it was not.
+   **/
+  public String reason(){
+    return reason;
+  }
+
+  /**
+   * Checks the limits.
+   *
+   * @param statistics the counters of the calling engine, which also count
+   * the calls, or null to only check the clock, the heap and interrupts,
+   * which is then done every time.
+   * @return boolean true if the engine should stop.
+   **/
+  public boolean exceeded(SolverStatistics statistics){
+    if (reason != null){
+      return true;
+    }
+    if (statistics != null){
+      if (statistics.conflicts >= conflicts){
+        return stop("conflict limit reached");
+      }
+      if (statistics.decisions >= decisions){
+        return stop("decision limit reached");
+      }
+      if (statistics.propagations >= propagations){
+        return stop("propagation limit reached");
+      }
+      if ((++statistics.checks & (CHECK_INTERVAL - 1)) != 0){
+        return false;
+      }
+    }
+    if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0){
+      return stop("time limit reached");
+    }
+    if (memory != Long.MAX_VALUE){
+      Runtime runtime = Runtime.getRuntime();
+      if (runtime.totalMemory() - runtime.freeMemory() > memory){
+        return stop("memory limit reached");
+      }
+    }
+    return false;
+  }
+
+  private boolean stop(String why){
+    // The first reason wins; a lost race only loses a reason.
+    if (reason == null){
+      reason = why;
+    }
+    return true;
+  }
+
+}
@@ -1,436 +1,649 @@
-
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Iterator;
 import java.util.HashMap;
-import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 class Solver{
 
   private PropositionalFormula formula;
-  private Character[] propositions;
-  private int[] vector;
-  private List<String> clauseSet;
+  private String[] propositions;
+  // The auxiliary variables of the Tseitin encoding, from index visible on, are left out of printed interpretations.
+  private int visible;
+  private int auxiliaries;
+  // Variable of each proposition name, built for the incremental methods.
+  private HashMap<String, Integer> variables;
+  // The engine kept between calls to solve(String...).
+  private CdclEngine incremental;
+  private ClauseDatabase clauses;
+  // Set once the clauses are simplified, to extend models to eliminated variables.
+  private Preprocessor preprocessor;
+  private SolverListener listener;
+  private long parseNanos;
+  private long preprocessNanos;
+  private SolverStatistics statistics = new SolverStatistics();
+  private final SolveLimits limits = new SolveLimits();
+  private long maxClauseMemory = Long.MAX_VALUE;
+  private PrintStream out = System.out;
+  private ResultCache cache;
+  // The fingerprint of the clauses while a search that missed the cache runs.
+  private ResultCache.Fingerprint fingerprint;
+  private Path proofFile;
+  // The satisfying interpretation found by the last method.
+  private List<String> model;
+
+  /**
+   * Returned by the brute-force methods when they are stopped by a limit.
+   **/
+  public static final long STOPPED = -2;
 
   public Solver(PropositionalFormula formula){
     this.formula = formula;
     if (formula.isCNF()){
-      this.propositions = extractPropositions(formula);
-      this.vector = extractBitVector(propositions);
-      this.clauseSet = extractClauseSet(formula);
+      this.clauses = formula.getClauses().copy();
+      this.propositions = formula.getVariables();
+      this.visible = propositions.length;
+    } else {
+      formula.toCNF();
+      this.clauses = formula.getEncodedClauses().copy();
+      String[] atoms = formula.getVariables();
+      this.propositions = new String[clauses.variables()];
+      for (int v = 0; v < propositions.length; v++){
+        propositions[v] = (v < atoms.length) ? atoms[v] : "_" + (v - atoms.length + 1);
+      }
+      this.visible = atoms.length;
+      this.auxiliaries = propositions.length - atoms.length;
     }
   }
 
-  private Character[] extractPropositions(PropositionalFormula formula){
+  /**
+   * Creates a solver for clauses that were not given as a formula, such as
+   * a DIMACS file. Variable i is named i+1, as in DIMACS.
+   *
+   * @param clauses the clauses to solve, which are copied, so clauses
+   * added to the solver later are not added to them.
+   **/
+  public Solver(ClauseDatabase clauses){
+    this.clauses = clauses.copy();
+    this.propositions = new String[clauses.variables()];
+    for (int v = 0; v < propositions.length; v++){
+      propositions[v] = Integer.toString(v + 1);
+    }
+    this.visible = propositions.length;
+  }
 
-    String CNF = formula.getCNF();
+  /**
+   * Simplifies the clauses for all engines run afterwards. Their models
+   * are extended to the eliminated variables before they are printed.
+   **/
+  public void preprocess(){
+    long time = System.nanoTime();
+    preprocessor = new Preprocessor(clauses);
+    clauses = preprocessor.simplify();
+    preprocessNanos = System.nanoTime() - time;
+    phaseFinished("preprocess", preprocessNanos);
+    out.printf("Preprocessing removed %d clauses and eliminated %d variables.\n", preprocessor.removedClauses(), preprocessor.eliminatedVariables());
+  }
 
-    List<Character> props = new ArrayList<>();
-    for (int i = 0; i < CNF.length(); i++){
-      Character c = CNF.charAt(i);
-      if ((c == '{') || (c == '}') || (c == ' ') || (c == ',') || (c == '-')){
-        continue;
-      }
-      if (props.contains(c)){
-        continue;
-      }
-      props.add(c);
-    }
-    Character[] propositions = new Character[props.size()];
-    propositions = props.toArray(propositions);
-    return propositions;
-  }
-
-  private int[] extractBitVector(Character[] propositions){
-    //Initialize a new array able to hold as many bits as propositions.
-    //An integer can hold 31 bits.
-    int[] vector = new int[propositions.length / 32 + 1];
-    int index = 0;
-    int counter = 0;
-    for (Character c : propositions){
-      vector[index] = (vector[index] << 1) | 1;
-      counter++;
-      if (counter >=32 ){
-        index++;
-        counter = 0;
-      }
-    }
-    return vector;
+  /**
+   * Reports the phases, and the progress of the CDCL engines, to the listener.
+   *
+   * @param listener the listener, or null for none.
+   **/
+  public void setListener(SolverListener listener){
+    this.listener = listener;
   }
 
-  private List<String> extractClauseSet(PropositionalFormula formula){
-    return formula.getClauseSet();
+  /**
+   * Sets where the methods print their results and interpretations.
+   *
+   * @param out the stream, System.out by default.
+   **/
+  public void setOutput(PrintStream out){
+    this.out = out;
   }
 
+  /**
+   * Looks the clauses up in a cache before dpll and the CDCL methods
+   * search, and stores what they find.
+   *
+   * @param cache the cache, which may be shared by solvers, or null for none.
+   **/
+  public void setCache(ResultCache cache){
+    this.cache = cache;
+  }
 
-  public int bruteForce(){
-    return bruteForce(this.clauseSet, this.propositions, this.vector[0]);
+  /**
+   * Makes dpll and cdcl write a binary DRAT proof to the file, replacing
+   * it on every run; the proof ends in the empty clause if the clauses are
+   * unsatisfiable. It refers to the clauses the solver was given, such as
+   * those of a DIMACS file, so it does not hold after preprocess(). The
+   * cache is not looked up while proofs are written.
+   *
+   * @param file the proof file or a named pipe, or null for none.
+   **/
+  public void setProof(Path file){
+    this.proofFile = file;
   }
-  private int bruteForce(List<String> clauses, Character[] propositions, int bitvector){
 
-    // Map the literals to the interpreted value as decided by the bitvector.
-    HashMap<Character, Boolean> interpretation = new HashMap<>();
+  /**
+   * The satisfying interpretation found by the last method run, as the
+   * literals that are true, or null if it found none.
+   **/
+  public List<String> model(){
+    return model;
+  }
 
-    while(bitvector >= 0){
-      int check = 1;
-      interpretation.clear();
-      for (Character c : propositions){
-        interpretation.put(c, (bitvector & check) > 0);
-        check = check << 1;
-      }
+  /**
+   * The limits of every method run afterwards; they apply to each run on
+   * its own.
+   **/
+  public SolveLimits limits(){
+    return limits;
+  }
 
-      // Iterate through all clauses. If a clause is unsatisfied in the interpretation,
-      // recurse with decremented bitvector.
-      boolean sat = true;
-      for (String s : clauses){
-        if (!isClauseSatisfiable(s, interpretation)){
-          sat = false;
-          break;
-        }
-      }
-      // All clauses satisfied by the interpretation.
-      if (sat) {
-        System.out.println("\nA satisfying interpretation: " + interpretation);
-        return bitvector;
-      }
-      bitvector--;
+  /**
+   * Stops the running method, which then returns UNKNOWN, or STOPPED for
+   * brute force. Can be called from any thread.
+   **/
+  public void interrupt(){
+    limits.interrupt();
+  }
+
+  /**
+   * Records the time it took to read the formula, which happens before the
+   * solver exists.
+   *
+   * @param nanos the parse time.
+   **/
+  public void parsed(long nanos){
+    parseNanos = nanos;
+    phaseFinished("parse", nanos);
+  }
+
+  /**
+   * The counters of the last method run, with the parse and preprocess
+   * times. The brute-force methods only have times.
+   **/
+  public SolverStatistics statistics(){
+    return statistics;
+  }
 
+  private void phaseFinished(String phase, long nanos){
+    SolverEvents.Phase event = new SolverEvents.Phase();
+    if (event.isEnabled()){
+      event.phase = phase;
+      event.time = nanos;
+      event.commit();
     }
-    return -1;
+    if (listener != null){
+      listener.phaseFinished(phase, nanos);
+    }
+  }
+
+  // Starts the statistics of a new method.
+  private long searchStarted(){
+    statistics = new SolverStatistics();
+    statistics.parseNanos = parseNanos;
+    statistics.preprocessNanos = preprocessNanos;
+    model = null;
+    limits.start();
+    return System.nanoTime();
   }
 
+  private void searchFinished(long start, SolverStatistics counters){
+    if (counters != null){
+      statistics.add(counters);
+    }
+    statistics.searchNanos = System.nanoTime() - start;
+    phaseFinished("search", statistics.searchNanos);
+  }
 
-  public int bruteForceUnit(){
+  public long bruteForce(){
+    return bruteForce(new byte[propositions.length]);
+  }
 
-    HashMap<Character, Boolean> unitClauses = new HashMap<>();
-    for (String s : this.clauseSet){
-      if (s.length() > 2)
+  public long bruteForceUnit(){
+
+    byte[] unitClauses = new byte[propositions.length];
+    for (int i = 0; i < clauses.size(); i++){
+      if (clauses.length(i) != 1)
         continue;
-      if (s.charAt(0) == '-'){
-        unitClauses.put(s.charAt(1), false);
-      }
-      if (s.length() == 1){
-        unitClauses.put(s.charAt(0), true);
-      }
+      int literal = clauses.literal(i, 0);
+      unitClauses[ClauseDatabase.variable(literal)] = ClauseDatabase.isNegated(literal) ? Propagator.FALSE : Propagator.TRUE;
     }
-    return bruteForceUnit(this.clauseSet, this.propositions, this.vector[0], unitClauses);
+    return bruteForce(unitClauses);
   }
 
-  private int bruteForceUnit(List<String> clauses, Character[] propositions, int bitvector, HashMap<Character, Boolean> unitClauses){
+  /**
+   * Brute force split over all cores. The first satisfying assignment found
+   * by any core is returned, which need not be the highest numbered one.
+   **/
+  public long bruteForceParallel(){
+    BruteForceSearch search = new BruteForceSearch(clauses, new byte[propositions.length]);
+    search.setLimits(limits);
+    long start = searchStarted();
+    boolean[] interpretation = search.search(ForkJoinPool.commonPool());
+    searchFinished(start, null);
+    return report(search, interpretation);
+  }
 
-    // Map the literals to the interpreted value as decided by the bitvector.
-    HashMap<Character, Boolean> interpretation = new HashMap<>();
-    while(bitvector > 0){
-      int check = 1;
-      interpretation.clear();
-      for (Character c : propositions){
-        if (unitClauses.keySet().contains(c)){
-          interpretation.put(c, unitClauses.get(c));
-          if (!interpretation.get(c))
-            bitvector &= (bitvector ^ check);
-        } else {
-          interpretation.put(c, (bitvector & check) > 0);
-        }
-        check = check << 1;
-      }
+  private long bruteForce(byte[] fixed){
+    BruteForceSearch search = new BruteForceSearch(clauses, fixed);
+    search.setLimits(limits);
+    long start = searchStarted();
+    boolean[] interpretation = search.search();
+    searchFinished(start, null);
+    return report(search, interpretation);
+  }
 
-      // Iterate through all clauses. If a clause is unsatisfied in the interpretation,
-      // recurse with decremented bitvector.
-      boolean sat = true;
-      for (String s : clauses){
-        if (!isClauseSatisfiable(s, interpretation)){
-          sat = false;
-          break;
-        }
+  private long report(BruteForceSearch search, boolean[] interpretation){
+    if (search.isStopped()){
+      out.println("\nSearch stopped: " + limits.reason() + ".");
+      return STOPPED;
+    }
+    if (interpretation == null){
+      return -1;
+    }
+    if (preprocessor != null){
+      byte[] values = new byte[interpretation.length];
+      for (int v = 0; v < values.length; v++){
+        values[v] = interpretation[v] ? Propagator.TRUE : Propagator.FALSE;
       }
-      // All clauses satisfied by the interpretation.
-      if (sat) {
-        System.out.println("\nA satisfying interpretation: " + interpretation);
-        return bitvector;
+      values = preprocessor.extend(values);
+      for (int v = 0; v < values.length; v++){
+        interpretation[v] = values[v] == Propagator.TRUE;
       }
-      bitvector--;
-
     }
-    return -1;
+    model = new ArrayList<>();
+    for (int v = 0; v < propositions.length; v++){
+      if (isAuxiliary(v))
+        continue;
+      model.add(interpretation[v] ? propositions[v] : "-" + propositions[v]);
+    }
+    out.println("\nA satisfying interpretation: " + toMap(interpretation));
+    return BruteForceSearch.number(interpretation);
   }
 
-  private List<String> trues = new ArrayList<>();
+  private Propagator propagator;
+  private VariableOrder order;
+  private PureLiterals pureLiterals;
+
+  // True if the decision on level i has already been flipped to its negation.
+  private boolean[] flipped;
+  private ProofWriter proof;
+  // The negated decisions of a lemma.
+  private int[] lemma;
+
   public int dpll(){
-    int i = dpll(this.formula);
-    if (i > 0){
-      System.out.println("A satisfying interpretation: " + trues);
-    } else {
-      System.out.println("Formula is invalid.");
+    long start = searchStarted();
+    ResultCache.Answer answer = cached();
+    if (answer != null){
+      return finish(start, null, answer.result(), answer.model());
+    }
+    this.propagator = new Propagator(clauses);
+    this.order = new VariableOrder(propositions.length);
+    this.propagator.setVariableOrder(order);
+    this.pureLiterals = new PureLiterals(clauses, propagator);
+    this.flipped = new boolean[propositions.length + 1];
+    this.lemma = new int[propositions.length];
+    int i;
+    try (ProofWriter proof = openProof()){
+      this.proof = proof;
+      if (propagator.isInconsistent()){
+        addLemma(0);
+        i = -1;
+      } else {
+        i = dpllSearch();
+      }
+    } catch (IOException e){
+      throw new UncheckedIOException(e);
+    } finally {
+      this.proof = null;
     }
+    statistics.propagations = propagator.propagations();
+    return finish(start, null, i, (i > 0) ? propagator.model() : null);
+  }
 
-    return i;
+  /**
+   * Sets the clause memory budget of every CDCL engine created afterwards;
+   * the parallel methods give each engine the whole budget.
+   *
+   * @param bytes the bytes the clause database of an engine may allocate
+   * before learned clauses are removed early.
+   * @see CdclEngine#setMaxClauseMemory(long)
+   **/
+  public void setMaxClauseMemory(long bytes){
+    this.maxClauseMemory = bytes;
   }
 
-  //https://en.wikipedia.org/wiki/DPLL_algorithm
-  private int dpll(PropositionalFormula formula){
-    if (containsEmptyClause(formula)){
-      return -1;
+  public int cdcl(){
+    return cdcl(RestartPolicy.named("glucose"));
+  }
+
+  /**
+   * Races differently configured CDCL engines, one per worker thread.
+   *
+   * @param workers the number of engines.
+   **/
+  public int cdclPortfolio(int workers) throws InterruptedException{
+    long start = searchStarted();
+    ResultCache.Answer answer = cached();
+    if (answer != null){
+      return finish(start, null, answer.result(), answer.model());
     }
+    Portfolio portfolio = new Portfolio(clauses, workers);
+    portfolio.setListener(listener);
+    portfolio.setLimits(limits);
+    portfolio.setMaxClauseMemory(maxClauseMemory);
+    int i = portfolio.solve();
+    out.println("Portfolio winner: " + portfolio.winner() + ".");
+    return finish(start, portfolio.statistics(), i, (i == CdclEngine.SATISFIABLE) ? portfolio.model() : null);
+  }
 
-    if (isConsistentSetOfLiterals(formula)){
-      for (String s : formula.getClauseSet()){
-        trues.add(s);
-      }
-      return 1;
-    }
-    List<String> unitClauses = extractUnitClauses(formula);
-    for (String literal : unitClauses){
-      try{
-        unitPropagate(literal, formula, (literal.length() == 2));
-      } catch(Exception e){
-        e.printStackTrace();
-      }
+  /**
+   * Splits the formula into cubes by lookahead and solves them on a pool of
+   * CDCL engines.
+   *
+   * @param workers the number of worker threads.
+   **/
+  public int cubeAndConquer(int workers){
+    long start = searchStarted();
+    ResultCache.Answer answer = cached();
+    if (answer != null){
+      return finish(start, null, answer.result(), answer.model());
     }
-    List<String> pureLiterals = extractPureLiterals(formula);
-    for (String literal : pureLiterals){
-      try{
-        unitPropagate(literal, formula, (literal.length() == 2));
-      } catch(Exception e){
-        e.printStackTrace();
-      }
+    CubeAndConquer cubes = new CubeAndConquer(clauses, workers);
+    cubes.setListener(listener);
+    cubes.setLimits(limits);
+    cubes.setMaxClauseMemory(maxClauseMemory);
+    int i = cubes.solve();
+    out.println("Cubes solved: " + cubes.cubes() + ".");
+    return finish(start, cubes.statistics(), i, (i == CdclEngine.SATISFIABLE) ? cubes.model() : null);
+  }
+
+  public int cdcl(RestartPolicy restarts){
+    long start = searchStarted();
+    ResultCache.Answer answer = cached();
+    if (answer != null){
+      return finish(start, null, answer.result(), answer.model());
     }
-    // Choose branching literal
-    Iterator<String> iter = formula.getClauseSet().iterator();
-    String firstClause = iter.next();
-    String literal = (firstClause.charAt(0) == '-') ? firstClause.substring(1,2) : firstClause.substring(0,1);
-    PropositionalFormula branching = formula.clone();
-    try {
-      unitPropagate(literal, branching, false);
-    } catch(Exception e){
-      e.printStackTrace();
-    }
-    int ret = dpll(branching);
-    if (ret < 0){
-      branching = formula.clone();
-      try {
-        unitPropagate("-" + literal, branching, true);
-      } catch(Exception e){
-        e.printStackTrace();
-      }
-      if(!trues.contains("-"+literal))
-        trues.add("-" + literal);
-      ret = dpll(branching);
-    } else {
-      trues.add(literal);
+    CdclEngine engine = new CdclEngine(clauses);
+    engine.setRestartPolicy(restarts);
+    engine.setListener(listener);
+    engine.setLimits(limits);
+    engine.setMaxClauseMemory(maxClauseMemory);
+    int i;
+    try (ProofWriter proof = openProof()){
+      engine.setProof(proof);
+      i = engine.solve();
+    } catch (IOException e){
+      throw new UncheckedIOException(e);
     }
-    return ret;
+    return finish(start, engine.statistics(), i, (i == CdclEngine.SATISFIABLE) ? engine.model() : null);
   }
 
-  private boolean isConsistentSetOfLiterals(PropositionalFormula formula){
-    List<String> clauseSet = formula.getClauseSet();
-    List<Character> literals = new ArrayList<>();
-    List<Character> negatedLiterals = new ArrayList<>();
-    for (String clause : clauseSet){
-      // Empty clause
-      if (clause == null){
-        continue;
-      }
-      char[] clauseLiterals = clause.toCharArray();
-      for (int i = 0; i < clauseLiterals.length; i++){
-        char literal = clauseLiterals[i];
-        if (i > 0 && clauseLiterals[i-1] == '-'){
-          if (literals.contains(literal)){
-            return false;
-          }
-          negatedLiterals.add(literal);
-          continue;
-        }
-        if (negatedLiterals.contains(literal)){
-          return false;
-        }
-        literals.add(literal);
-      }
+  // The cached result of the clauses, or null if there is none or no cache; a miss keeps the fingerprint for finish().
+  private ResultCache.Answer cached(){
+    fingerprint = null;
+    if (cache == null){
+      return null;
     }
-    return true;
+    ResultCache.Fingerprint key = cache.fingerprint(clauses);
+    ResultCache.Answer answer = (proofFile == null) ? cache.get(key, clauses) : null;
+    if (answer != null){
+      out.println("Result found in cache.");
+    } else {
+      fingerprint = key;
+    }
+    return answer;
   }
 
-  private boolean containsEmptyClause(PropositionalFormula formula){
-    return (formula.getClauseSet().contains(null));
+  private ProofWriter openProof() throws IOException{
+    return (proofFile == null) ? null : new ProofWriter(proofFile);
   }
 
-  private List<String> extractUnitClauses(PropositionalFormula formula){
-    List<String> list = new ArrayList<>();
-    List<String> clauses = formula.getClauseSet();
-    for (String clause : clauses){
-      char[] clauseLiterals = clause.toCharArray();
-      if (clauseLiterals.length == 1){
-        list.add(clause);
-        continue;
-      }
-      if (clauseLiterals.length == 2 && clauseLiterals[0] == '-'){
-        list.add(clause);
-        continue;
-      }
+  // Ends a search, caches its result and prints it.
+  private int finish(long start, SolverStatistics counters, int result, byte[] values){
+    searchFinished(start, counters);
+    if (fingerprint != null){
+      cache.put(fingerprint, result, values);
+    }
+    if (result > 0){
+      model = modelLiterals(values);
+      out.println("A satisfying interpretation: " + model);
+    } else if (result == CdclEngine.UNKNOWN){
+      out.println("Search stopped: " + limits.reason() + ".");
+    } else {
+      out.println("Formula is invalid.");
     }
-    return list;
+
+    return result;
   }
 
+  /**
+   * Solves the clauses under assumptions, keeping one CDCL engine with its
+   * learned clauses, activities and saved phases between calls, so that
+   * repeated queries on the same formula do not start over. Literals are
+   * proposition names, negated by a leading '-' as in printed
+   * interpretations. Nothing is printed; the model of a satisfiable call is
+   * returned by model().
+   *
+   * @param assumptions literals that must be true.
+   * @return int CdclEngine.SATISFIABLE, UNSATISFIABLE if no assignment
+   * makes all assumptions true, or UNKNOWN if a limit is reached.
+   * @see #failedAssumptions()
+   **/
+  public int solve(String... assumptions){
+    int[] literals = new int[assumptions.length];
+    for (int i = 0; i < literals.length; i++){
+      literals[i] = literal(assumptions[i], false);
+    }
+    CdclEngine engine = incremental();
+    long start = searchStarted();
+    int i = engine.solve(literals);
+    searchFinished(start, engine.statistics());
+    if (i == CdclEngine.SATISFIABLE){
+      model = modelLiterals(engine.model());
+    }
+    return i;
+  }
 
   /**
-  * Sets the literal to be parameter negated in the formula, and
-  * propagates the change through the formula. This method is destructive;
-  * it makes changes to the formula.
-  *
-  * @param literal The literal to propagate on.
-  * @param formula The formula to propagate on.
-  * @param negated True if literal is negated, false if not.
-  * @throws IOException If @param literal is not of length 1 (i.e., not a literal) and negated is false.
-  * @see https://en.wikipedia.org/wiki/Unit_propagation
-  */
-  private void unitPropagate(String literal, PropositionalFormula formula, boolean negated) throws IOException{
-    if (literal.length() != 1 && !negated){
-      throw new IOException("Length of supplied literal parameter is not 1.");
+   * Adds a clause for the following calls to solve(String...) and to the
+   * other methods. Names that are not propositions yet become new ones.
+   *
+   * @param literals proposition names, negated by a leading '-'.
+   **/
+  public void addClause(String... literals){
+    checkNotPreprocessed();
+    int[] clause = new int[literals.length];
+    for (int i = 0; i < clause.length; i++){
+      clause[i] = literal(literals[i], true);
     }
-    if (literal.length() != 2 && negated){
-      throw new IOException("Length of supplied negated literal parameter is not 2.");
+    clauses.ensureVariables(propositions.length);
+    clauses.addClause(clause);
+    if (incremental != null){
+      incremental.addClause(clause);
     }
+  }
 
-    List<String> clauses = formula.getClauseSet();
-    for (ListIterator<String> iter = clauses.listIterator(); iter.hasNext();){
+  /**
+   * The assumptions of the last call to solve(String...) that together
+   * made it UNSATISFIABLE; empty if the clauses are unsatisfiable on their
+   * own, or if the call did not return UNSATISFIABLE.
+   *
+   * @return List<String> a subset of the assumptions.
+   **/
+  public List<String> failedAssumptions(){
+    List<String> failed = new ArrayList<>();
+    if (incremental != null){
+      for (int literal : incremental.failedAssumptions()){
+        String name = propositions[ClauseDatabase.variable(literal)];
+        failed.add(ClauseDatabase.isNegated(literal) ? "-" + name : name);
+      }
+    }
+    return failed;
+  }
 
-      String clause = iter.next();
+  private CdclEngine incremental(){
+    checkNotPreprocessed();
+    if (incremental == null){
+      incremental = new CdclEngine(clauses);
+      incremental.setListener(listener);
+      incremental.setLimits(limits);
+      incremental.setMaxClauseMemory(maxClauseMemory);
+    }
+    return incremental;
+  }
 
-      // Empty clause
-      if (clause == null){
-        continue;
-      }
+  private void checkNotPreprocessed(){
+    if (preprocessor != null){
+      throw new IllegalStateException("Assumptions and added clauses may refer to variables eliminated by preprocessing.");
+    }
+  }
 
-      if (clause.length() <= 1){
-        // Either empty clause or unit clause
-        continue;
-      }
-      if (clause.length() == 2 && negated && (clause.charAt(0) == '-')){
-        // Negated unit clause
-        continue;
-      }
-      boolean neg = negated;
-      for (int i = 0; i < clause.length(); i++){
-        if (clause.charAt(i) == '-'){
-          if (negated){
-            if (clause.charAt(i+1) == literal.charAt(1)){
-              // Clause contains negated literal, clause can be removed.
-              iter.remove();
-              break;
-            }
-          }
-          neg = !negated;
-          continue;
-        }
-        if (clause.charAt(i) == literal.charAt(0)){
-          // Clause contains non-negated literal, clause can be removed
-          if (neg == negated){
-            iter.remove();
-            break;
-          }
-          // Clause contains negated literal, remove the literal and the negation from the clause
-          String s = (i==0) ? clause.substring(i+1) : clause.substring(0, i-1) + clause.substring(i+1);
-          iter.set((s.length() > 0) ? s : null);
-        }
-        if (negated && clause.charAt(i) == literal.charAt(1)){
-          // Clause contains non-negated literal, remove the literal.
-          String s = (i==1) ? clause.substring(i+1) : clause.substring(0, i) + clause.substring(i+1);
-          iter.set((s.length() > 0) ? s : null);
-        }
-        neg = negated;
+  // The literal of a proposition name, negated by a leading '-'. Unknown names are added if allowed.
+  private int literal(String name, boolean add){
+    if (variables == null){
+      variables = new HashMap<>();
+      for (int v = 0; v < propositions.length; v++){
+        variables.put(propositions[v], v);
       }
     }
+    boolean negated = name.startsWith("-");
+    String proposition = (negated) ? name.substring(1) : name;
+    Integer v = variables.get(proposition);
+    if (v == null){
+      if (!add || proposition.isEmpty())
+        throw new IllegalArgumentException("Not a proposition of the formula: " + name);
+      v = propositions.length;
+      propositions = Arrays.copyOf(propositions, v + 1);
+      propositions[v] = proposition;
+      variables.put(proposition, v);
+    }
+    return ClauseDatabase.literal(v, negated);
   }
 
   /**
-  * This method extracts all pure literals of a formula.
-  * Pure literals are literals that occur with only one polarity.
-  * This method is non-destructive towards the formula.
+  * Iterative DPLL on the propagator trail. Each decision opens a new
+  * decision level; on a conflict the search backtracks to the most recent
+  * decision that has not been flipped yet and tries its negation. Decisions
+  * follow the activity order, where the variables of conflicting clauses
+  * are bumped.
   *
-  * @param formula propositional formula to extract pure literals from
-  * @return List<String> list of all pure literals in the formula
+  * @return int 1 if a satisfying assignment is found, -1 if the formula is
+  * unsatisfiable, or 0 if a limit is reached.
   * @see https://en.wikipedia.org/wiki/DPLL_algorithm
   */
-
-  private List<String> extractPureLiterals(PropositionalFormula formula){
-    List<String> clauses = formula.getClauseSet();
-    HashMap<Character, Boolean> literals = new HashMap<>();
-    List<Character> duplicates = new ArrayList<>();
-    for (Iterator<String> iter = clauses.listIterator(); iter.hasNext(); ){
-      String clause = iter.next();
-      // Empty clause
-      if (clause == null){
-        continue;
+  private int dpllSearch(){
+    while (true){
+      int conflict = propagator.propagate();
+      statistics.propagations = propagator.propagations();
+      if (limits.exceeded(statistics)){
+        return CdclEngine.UNKNOWN;
       }
-      for (int i = 0; i < clause.length(); i++){
-        // Duplicate allready noted, skip
-        if (duplicates.contains(clause.charAt(i))){
-          continue;
+      if (conflict != Propagator.NO_CONFLICT){
+        statistics.conflicts++;
+        statistics.maxTrail = Math.max(statistics.maxTrail, propagator.trailSize());
+        for (int i = 0; i < clauses.length(conflict); i++){
+          order.bump(ClauseDatabase.variable(clauses.literal(conflict, i)));
         }
-        Character literal;
-        if (clause.charAt(i) == '-'){
-          // Increment counter to get index to the literal
-          i++;
-          literal = clause.charAt(i);
-          if (duplicates.contains(literal)){
-            continue;
-          }
-          // Literal has been seen before
-          if (literals.keySet().contains(literal)){
-            // Literal has been seen negated before, nothing new; skip
-            if (literals.get(literal)){
-              continue;
-            }
-            // Literal has been non-negated before, but is negated now; add to duplicates.
-            duplicates.add(literal);
-            continue;
-          }
-          // New literal, add it
-          literals.put(literal, true);
-          continue;
+        order.decay();
+        if (!flipDecision()){
+          return -1;
         }
+        continue;
+      }
+      pureLiterals.assign();
 
-        literal = clause.charAt(i);
-        // Literal has been seen before
-        if (literals.keySet().contains(literal)){
-          // Literal has been seen negated before; add to duplicates
-          if (literals.get(literal)){
-            duplicates.add(literal);
-          }
-          continue;
-        }
-        literals.put(literal, false);
+      // Choose branching literal
+      int literal = pickBranchingLiteral();
+      if (literal < 0){
+        // Every variable is assigned without conflict.
+        return 1;
       }
+      propagator.decide(literal);
+      statistics.decisions++;
+      flipped[propagator.decisionLevel()] = false;
     }
-    List<String> pureLiterals = new ArrayList<>();
-    // The pure literas are the characters that are inn literals but not in duplicates.
-    for (Character c : literals.keySet()){
-      if (duplicates.contains(c)){
-        continue;
+  }
+
+  // Backtracks to the last unflipped decision and assigns its negation. False if there is none left.
+  private boolean flipDecision(){
+    addLemma(propagator.decisionLevel());
+    for (int level = propagator.decisionLevel(); level > 0; level--){
+      int decision = propagator.decision(level);
+      boolean done = flipped[level];
+      pureLiterals.backtrack(level - 1);
+      if (!done){
+        propagator.decide(ClauseDatabase.negate(decision));
+        statistics.decisions++;
+        flipped[level] = true;
+        return true;
+      }
+      // Both values of the decision failed, so the decisions before it fail.
+      addLemma(level - 1);
+    }
+    return false;
+  }
+
+  // Logs that the decisions up to the level fail. The empty clause for level 0 ends the proof.
+  private void addLemma(int level){
+    if (proof == null){
+      return;
+    }
+    for (int l = 1; l <= level; l++){
+      lemma[l - 1] = ClauseDatabase.negate(propagator.decision(l));
+    }
+    proof.add(lemma, 0, level);
+  }
+
+  // The unassigned variable with the highest activity, in its saved phase, or -1 if all are assigned.
+  private int pickBranchingLiteral(){
+    int v;
+    while ((v = order.removeMax()) >= 0){
+      if (propagator.value(ClauseDatabase.literal(v, false)) == Propagator.UNASSIGNED){
+        return order.literal(v);
       }
-      pureLiterals.add((literals.get(c)) ? ("-" + c) : Character.toString(c));
     }
-    return pureLiterals;
+    return -1;
   }
 
-  private boolean isClauseSatisfiable(String clause, HashMap<Character, Boolean> interpretation){
-    boolean negated = false;
-    //Iterate through each literal in the clause.
-    for (int i = 0; i < clause.length(); i++){
-      char c = clause.charAt(i);
-      if (c == '-'){
-        negated = true;
+  private List<String> modelLiterals(byte[] model){
+    if (preprocessor != null){
+      model = preprocessor.extend(model);
+    }
+    List<String> literals = new ArrayList<>();
+    for (int v = 0; v < propositions.length; v++){
+      if (isAuxiliary(v))
         continue;
+      byte value = model[v];
+      if (value == Propagator.TRUE){
+        literals.add(propositions[v]);
+      } else if (value == Propagator.FALSE){
+        literals.add("-" + propositions[v]);
       }
-      //True if literal is interpreted to true and not negated, or
-      //if literal is interpreted to false and negated. Classical XOR.
-      //If a literal is true, the clause is satisfied.
-      if (interpretation.get(c) ^ negated){
-        return true;
-      }
-      negated = false;
     }
-    return false;
+    return literals;
+  }
+
+  private boolean isAuxiliary(int variable){
+    return variable >= visible && variable < visible + auxiliaries;
+  }
+
+  private HashMap<String, Boolean> toMap(boolean[] interpretation){
+    HashMap<String, Boolean> map = new HashMap<>();
+    for (int v = 0; v < propositions.length; v++){
+      if (isAuxiliary(v))
+        continue;
+      map.put(propositions[v], interpretation[v]);
+    }
+    return map;
   }
 
 }
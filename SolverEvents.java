@@ -0,0 +1,103 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of the solver, recorded with for example
+ * java -XX:StartFlightRecording=filename=solver.jfr Main ... An event
+ * that is not enabled in the recording is not committed, so they cost
+ * next to nothing when no recording runs.
+ **/
+final class SolverEvents{
+
+  private SolverEvents(){
+  }
+
+  @Name("satsolver.Phase")
+  @Label("Solver Phase")
+  @Category("SAT Solver")
+  @Description("Parsing, preprocessing or search, committed when it ends")
+  @StackTrace(false)
+  static class Phase extends Event{
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long time;
+
+  }
+
+  @Name("satsolver.Search")
+  @Label("Search")
+  @Category("SAT Solver")
+  @Description("A call to solve() of a CDCL engine")
+  @StackTrace(false)
+  static class Search extends Event{
+
+    @Label("Result")
+    int result;
+
+    @Label("Decisions")
+    long decisions;
+
+    @Label("Propagations")
+    long propagations;
+
+    @Label("Conflicts")
+    long conflicts;
+
+    @Label("Restarts")
+    long restarts;
+
+    @Label("Learned Clauses")
+    long learnedClauses;
+
+    @Label("Max Trail")
+    int maxTrail;
+
+    void set(int result, SolverStatistics statistics){
+      this.result = result;
+      this.decisions = statistics.decisions;
+      this.propagations = statistics.propagations;
+      this.conflicts = statistics.conflicts;
+      this.restarts = statistics.restarts;
+      this.learnedClauses = statistics.learnedClauses;
+      this.maxTrail = statistics.maxTrail;
+    }
+
+  }
+
+  @Name("satsolver.Progress")
+  @Label("Search Progress")
+  @Category("SAT Solver")
+  @Description("The counters of a CDCL engine, every CdclEngine.PROGRESS_INTERVAL conflicts")
+  @StackTrace(false)
+  static class Progress extends Event{
+
+    @Label("Decisions")
+    long decisions;
+
+    @Label("Propagations")
+    long propagations;
+
+    @Label("Conflicts")
+    long conflicts;
+
+    @Label("Restarts")
+    long restarts;
+
+    @Label("Learned Clauses")
+    long learnedClauses;
+
+    @Label("Trail")
+    int trail;
+
+  }
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Receives progress reports from the solver. All methods do nothing by
+ * default. Parallel engines report from their worker threads, so a
+ * listener shared by them must be thread-safe.
+ **/
+interface SolverListener{
+
+  /**
+   * Called when a phase of solving ends.
+   *
+   * @param phase parse, preprocess or search.
+   * @param nanos the time the phase took.
+   **/
+  default void phaseFinished(String phase, long nanos){
+  }
+
+  /**
+   * Called by a CDCL engine every CdclEngine.PROGRESS_INTERVAL conflicts.
+   *
+   * @param statistics the engine's statistics so far; not to be kept.
+   **/
+  default void progress(SolverStatistics statistics){
+  }
+
+  /**
+   * Called when a call to an engine's solve() returns.
+   *
+   * @param result CdclEngine.SATISFIABLE, UNSATISFIABLE or UNKNOWN.
+   * @param statistics the engine's statistics so far; not to be kept.
+   **/
+  default void searchFinished(int result, SolverStatistics statistics){
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Runtime counters of a search.
+ * <p>
+ * Every engine has its own statistics and is the only one to update them,
+ * from the thread it runs on, so the counters are plain fields that cost
+ * no more than an increment. The statistics of parallel engines are summed
+ * when they are read.
+ **/
+class SolverStatistics{
+
+  long decisions;
+  long propagations;
+  long conflicts;
+  long restarts;
+  long learnedClauses;
+  long importedClauses;
+  long reductions;
+  int maxTrail;
+  long parseNanos;
+  long preprocessNanos;
+  long searchNanos;
+  // Calls of SolveLimits.exceeded() by the engine, which are not summed.
+  int checks;
+
+  public long decisions(){
+    return decisions;
+  }
+
+  public long propagations(){
+    return propagations;
+  }
+
+  public long conflicts(){
+    return conflicts;
+  }
+
+  public long restarts(){
+    return restarts;
+  }
+
+  public long learnedClauses(){
+    return learnedClauses;
+  }
+
+  /**
+   * Clauses learned by other engines and added to this one.
+   **/
+  public long importedClauses(){
+    return importedClauses;
+  }
+
+  /**
+   * The number of times learned clauses were removed.
+   **/
+  public long reductions(){
+    return reductions;
+  }
+
+  /**
+   * The largest number of assigned variables seen at a conflict.
+   **/
+  public int maxTrail(){
+    return maxTrail;
+  }
+
+  public long parseNanos(){
+    return parseNanos;
+  }
+
+  public long preprocessNanos(){
+    return preprocessNanos;
+  }
+
+  public long searchNanos(){
+    return searchNanos;
+  }
+
+  /**
+   * Propagated assignments per second of search.
+   **/
+  public double propagationsPerSecond(){
+    return (searchNanos == 0) ? 0 : propagations * 1e9 / searchNanos;
+  }
+
+  /**
+   * Adds the counters of an engine that ran alongside. Times are not added,
+   * as the engines ran at the same time; the longest is kept.
+   *
+   * @param other the statistics of the other engine.
+   **/
+  public void add(SolverStatistics other){
+    decisions += other.decisions;
+    propagations += other.propagations;
+    conflicts += other.conflicts;
+    restarts += other.restarts;
+    learnedClauses += other.learnedClauses;
+    importedClauses += other.importedClauses;
+    reductions += other.reductions;
+    maxTrail = Math.max(maxTrail, other.maxTrail);
+    parseNanos = Math.max(parseNanos, other.parseNanos);
+    preprocessNanos = Math.max(preprocessNanos, other.preprocessNanos);
+    searchNanos = Math.max(searchNanos, other.searchNanos);
+  }
+
+  @Override
+  public String toString(){
+    return String.format("decisions %d, propagations %d (%.0f/s), conflicts %d, restarts %d, learned clauses %d, imported clauses %d, reductions %d, max trail %d; parse %d ms, preprocess %d ms, search %d ms",
+        decisions, propagations, propagationsPerSecond(), conflicts, restarts, learnedClauses, importedClauses, reductions, maxTrail,
+        parseNanos / 1000000, preprocessNanos / 1000000, searchNanos / 1000000);
+  }
+
+}
@@ -0,0 +1,238 @@
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Converts an arbitrary propositional formula into an equisatisfiable CNF of
+ * linear size (Tseitin encoding with the Plaisted-Greenbaum polarity
+ * optimization).
+ * <p>
+ * Every compound subformula gets a fresh variable that stands for it.
+ * Subformulas that occur only positively are only encoded as implying
+ * their definition, and those that occur only negatively as implied by it.
+ * Structurally equal subformulas share their variable, and negations are
+ * encoded as negated literals without a variable of their own. Atom i of
+ * the formula is variable i; the fresh variables follow the atoms.
+ *
+ * @see https://en.wikipedia.org/wiki/Tseytin_transformation
+ **/
+class TseitinEncoder{
+
+  private static final int POSITIVE = 1;
+  private static final int NEGATIVE = 2;
+
+  private final ClauseDatabase clauses = new ClauseDatabase();
+  // For every shared subformula: its literal, and the polarities encoded so far.
+  private final HashMap<FormulaNode, int[]> definitions = new HashMap<>();
+  private int variables;
+
+  /**
+   * Encodes the formula into clauses that are satisfiable exactly when the
+   * formula is.
+   *
+   * @param root the formula tree.
+   * @param atoms the number of distinct atoms, whose ids are 0 to atoms-1.
+   * @return TseitinEncoder the encoder holding the clauses.
+   **/
+  public static TseitinEncoder encode(FormulaNode root, int atoms){
+    TseitinEncoder encoder = new TseitinEncoder();
+    encoder.variables = atoms;
+    encoder.assertTrue(root);
+    encoder.clauses.ensureVariables(encoder.variables);
+    return encoder;
+  }
+
+  public ClauseDatabase getClauses(){
+    return clauses;
+  }
+
+  // Adds clauses requiring the formula to be true, without a variable for its top-level connectives.
+  private void assertTrue(FormulaNode root){
+    ArrayDeque<FormulaNode> conjuncts = new ArrayDeque<>();
+    conjuncts.push(root);
+    while (!conjuncts.isEmpty()){
+      FormulaNode node = conjuncts.pop();
+      switch (node.getOperator()){
+        case FormulaNode.AND:
+          // Pushed in reverse, so the conjuncts are asserted from left to right.
+          for (int i = node.size() - 1; i >= 0; i--){
+            conjuncts.push(node.child(i));
+          }
+          break;
+        case FormulaNode.OR:
+          int[] clause = new int[node.size()];
+          for (int i = 0; i < node.size(); i++){
+            clause[i] = literal(node.child(i), POSITIVE);
+          }
+          clauses.addClause(clause);
+          break;
+        case FormulaNode.IMPLIES:
+          int a = literal(node.child(0), NEGATIVE);
+          clauses.addClause(ClauseDatabase.negate(a), literal(node.child(1), POSITIVE));
+          break;
+        default:
+          clauses.addClause(literal(node, POSITIVE));
+      }
+    }
+  }
+
+  /**
+   * Returns the literal standing for a subformula, and adds the clauses
+   * defining it for the requested polarities if they were not added yet.
+   * The subformulas are defined in post-order on an explicit stack, so
+   * deeply nested formulas do not overflow the call stack.
+   *
+   * @param node the subformula.
+   * @param polarity POSITIVE, NEGATIVE or both, the polarities it occurs with.
+   * @return int the literal equivalent to the subformula.
+   **/
+  private int literal(FormulaNode node, int polarity){
+    ArrayDeque<Definition> pending = new ArrayDeque<>();
+    int literal = open(node, polarity, pending);
+    while (!pending.isEmpty()){
+      Definition definition = pending.peek();
+      int i = definition.next;
+      if (i < definition.operands.length){
+        // The literal of an operand is known at once; its own definition, if any, is pushed and added first.
+        definition.operands[i] = open(definition.node.child(i), operandPolarity(definition.node, i, definition.polarity), pending);
+        definition.next++;
+      } else {
+        pending.pop();
+        define(definition.node, definition.x, definition.polarity, definition.operands);
+      }
+    }
+    return literal;
+  }
+
+  // The literal of a subformula. A new variable, or a polarity not encoded yet, pushes a definition.
+  private int open(FormulaNode node, int polarity, ArrayDeque<Definition> pending){
+    boolean negated = false;
+    while (node.getOperator() == FormulaNode.NOT){
+      node = node.child(0);
+      polarity = flip(polarity);
+      negated = !negated;
+    }
+    int literal;
+    if (node.getOperator() == FormulaNode.ATOM){
+      literal = ClauseDatabase.literal(node.getVariable(), false);
+    } else {
+      int[] definition = definitions.get(node);
+      if (definition == null){
+        definition = new int[]{ClauseDatabase.literal(variables++, false), 0};
+        definitions.put(node, definition);
+      }
+      int missing = polarity & ~definition[1];
+      if (missing != 0){
+        definition[1] |= missing;
+        pending.push(new Definition(node, definition[0], missing));
+      }
+      literal = definition[0];
+    }
+    return (negated) ? ClauseDatabase.negate(literal) : literal;
+  }
+
+  // The polarities operand i of a node occurs with.
+  private static int operandPolarity(FormulaNode node, int i, int polarity){
+    switch (node.getOperator()){
+      case FormulaNode.AND:
+      case FormulaNode.OR:
+        return polarity;
+      case FormulaNode.IMPLIES:
+        return (i == 0) ? flip(polarity) : polarity;
+      case FormulaNode.EQUIVALENT:
+        return POSITIVE | NEGATIVE;
+      default:
+        throw new IllegalArgumentException("Unknown operator " + node.getOperator() + ".");
+    }
+  }
+
+  // Adds the clauses defining x as the node, given the literals of its operands.
+  private void define(FormulaNode node, int x, int polarity, int[] operands){
+    int notX = ClauseDatabase.negate(x);
+    switch (node.getOperator()){
+      case FormulaNode.AND:
+      case FormulaNode.OR:
+        boolean and = node.getOperator() == FormulaNode.AND;
+        // x -> and(c): (-x or ci) for every i. x -> or(c): (-x or c1 or ... or cn).
+        // and(c) -> x: (x or -c1 or ... or -cn). or(c) -> x: (x or -ci) for every i.
+        if ((polarity & POSITIVE) != 0){
+          if (and){
+            for (int c : operands){
+              clauses.addClause(notX, c);
+            }
+          } else {
+            clauses.addClause(prepend(notX, operands, false));
+          }
+        }
+        if ((polarity & NEGATIVE) != 0){
+          if (and){
+            clauses.addClause(prepend(x, operands, true));
+          } else {
+            for (int c : operands){
+              clauses.addClause(x, ClauseDatabase.negate(c));
+            }
+          }
+        }
+        return;
+      case FormulaNode.IMPLIES:
+        // a -> b is (-a or b).
+        int a = operands[0];
+        int b = operands[1];
+        if ((polarity & POSITIVE) != 0){
+          clauses.addClause(notX, ClauseDatabase.negate(a), b);
+        }
+        if ((polarity & NEGATIVE) != 0){
+          clauses.addClause(x, a);
+          clauses.addClause(x, ClauseDatabase.negate(b));
+        }
+        return;
+      case FormulaNode.EQUIVALENT:
+        int left = operands[0];
+        int right = operands[1];
+        if ((polarity & POSITIVE) != 0){
+          clauses.addClause(notX, ClauseDatabase.negate(left), right);
+          clauses.addClause(notX, left, ClauseDatabase.negate(right));
+        }
+        if ((polarity & NEGATIVE) != 0){
+          clauses.addClause(x, left, right);
+          clauses.addClause(x, ClauseDatabase.negate(left), ClauseDatabase.negate(right));
+        }
+        return;
+      default:
+        throw new IllegalArgumentException("Unknown operator " + node.getOperator() + ".");
+    }
+  }
+
+  private static int flip(int polarity){
+    return ((polarity & POSITIVE) << 1) | ((polarity & NEGATIVE) >> 1);
+  }
+
+  // The literal followed by the operands, negated if requested.
+  private static int[] prepend(int literal, int[] operands, boolean negate){
+    int[] clause = new int[operands.length + 1];
+    clause[0] = literal;
+    for (int i = 0; i < operands.length; i++){
+      clause[i + 1] = (negate) ? ClauseDatabase.negate(operands[i]) : operands[i];
+    }
+    return clause;
+  }
+
+  // A subformula whose defining clauses are added once the literals of its operands are known.
+  private static class Definition{
+
+    final FormulaNode node;
+    final int x;
+    final int polarity;
+    final int[] operands;
+    // The next operand to find the literal of.
+    int next;
+
+    Definition(FormulaNode node, int x, int polarity){
+      this.node = node;
+      this.x = x;
+      this.polarity = polarity;
+      this.operands = new int[node.size()];
+    }
+
+  }
+
+}
@@ -0,0 +1,205 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Activity-based branching order (VSIDS).
+ * <p>
+ * Every variable has an activity that is bumped when it takes part in a
+ * conflict. Instead of decaying all activities after a conflict, the bump
+ * increment grows geometrically, which gives the same exponential decay.
+ * Unassigned variables are kept in an indexed binary max-heap on activity,
+ * so the next decision variable is found in O(log n). The polarity a
+ * variable had when it was last unassigned is saved and reused when it is
+ * decided again.
+ **/
+class VariableOrder{
+
+  public static final double DEFAULT_DECAY = 0.95;
+
+  private static final double RESCALE_LIMIT = 1e100;
+
+  private double[] activity;
+  private boolean[] phase;
+  private boolean initialPhase;
+  private final double decay;
+  private double increment = 1;
+
+  // Heap of variables; indices[v] is the position of v in the heap, or -1.
+  private int[] heap;
+  private int[] indices;
+  private int size;
+
+  public VariableOrder(int variables){
+    this(variables, DEFAULT_DECAY);
+  }
+
+  /**
+   * Creates an order holding all variables, with zero activity and positive
+   * saved phase.
+   *
+   * @param variables number of variables.
+   * @param decay factor activities decay with per conflict, between 0 and 1.
+   **/
+  public VariableOrder(int variables, double decay){
+    this.activity = new double[variables];
+    this.phase = new boolean[variables];
+    this.decay = decay;
+    this.heap = new int[variables];
+    this.indices = new int[variables];
+    for (int v = 0; v < variables; v++){
+      heap[v] = v;
+      indices[v] = v;
+    }
+    this.size = variables;
+  }
+
+  public void setInitialPhase(boolean negated){
+    Arrays.fill(phase, negated);
+    initialPhase = negated;
+  }
+
+  /**
+   * Adds variables with zero activity and the initial phase.
+   *
+   * @param variables the new number of variables.
+   **/
+  public void ensureVariables(int variables){
+    int old = activity.length;
+    if (variables <= old){
+      return;
+    }
+    activity = Arrays.copyOf(activity, variables);
+    phase = Arrays.copyOf(phase, variables);
+    Arrays.fill(phase, old, variables, initialPhase);
+    heap = Arrays.copyOf(heap, variables);
+    indices = Arrays.copyOf(indices, variables);
+    for (int v = old; v < variables; v++){
+      indices[v] = -1;
+      insert(v);
+    }
+  }
+
+  /**
+   * Gives every variable a random activity smaller than one bump, which
+   * only changes the order among variables with equal activity.
+   *
+   * @param random the source of the activities.
+   **/
+  public void perturb(Random random){
+    for (int v = 0; v < activity.length; v++){
+      activity[v] += random.nextDouble() * increment * 1e-3;
+    }
+    for (int i = size / 2 - 1; i >= 0; i--){
+      down(i);
+    }
+  }
+
+  public void bump(int variable){
+    activity[variable] += increment;
+    if (activity[variable] > RESCALE_LIMIT){
+      for (int v = 0; v < activity.length; v++){
+        activity[v] *= 1 / RESCALE_LIMIT;
+      }
+      increment *= 1 / RESCALE_LIMIT;
+    }
+    if (indices[variable] >= 0){
+      up(indices[variable]);
+    }
+  }
+
+  public void decay(){
+    increment /= decay;
+  }
+
+  public double activity(int variable){
+    return activity[variable];
+  }
+
+  /**
+   * Saves the polarity of an assigned literal and puts its variable back in
+   * the heap. Called when the literal is unassigned on backtracking.
+   *
+   * @param literal the literal that was true.
+   **/
+  public void unassigned(int literal){
+    int variable = ClauseDatabase.variable(literal);
+    phase[variable] = ClauseDatabase.isNegated(literal);
+    insert(variable);
+  }
+
+  public void insert(int variable){
+    if (indices[variable] >= 0){
+      return;
+    }
+    heap[size] = variable;
+    indices[variable] = size;
+    up(size++);
+  }
+
+  /**
+   * Removes and returns the variable with the highest activity.
+   *
+   * @return int the variable, or -1 if the heap is empty.
+   **/
+  public int removeMax(){
+    if (size == 0){
+      return -1;
+    }
+    int max = heap[0];
+    indices[max] = -1;
+    size--;
+    if (size > 0){
+      heap[0] = heap[size];
+      indices[heap[0]] = 0;
+      down(0);
+    }
+    return max;
+  }
+
+  /**
+   * Returns the literal of the variable with its saved phase.
+   *
+   * @param variable the variable to decide.
+   * @return int the literal to assign.
+   **/
+  public int literal(int variable){
+    return ClauseDatabase.literal(variable, phase[variable]);
+  }
+
+  private void up(int i){
+    int variable = heap[i];
+    while (i > 0){
+      int parent = (i - 1) >> 1;
+      if (activity[heap[parent]] >= activity[variable]){
+        break;
+      }
+      heap[i] = heap[parent];
+      indices[heap[i]] = i;
+      i = parent;
+    }
+    heap[i] = variable;
+    indices[variable] = i;
+  }
+
+  private void down(int i){
+    int variable = heap[i];
+    while (true){
+      int child = 2 * i + 1;
+      if (child >= size){
+        break;
+      }
+      if (child + 1 < size && activity[heap[child + 1]] > activity[heap[child]]){
+        child++;
+      }
+      if (activity[heap[child]] <= activity[variable]){
+        break;
+      }
+      heap[i] = heap[child];
+      indices[heap[i]] = i;
+      i = child;
+    }
+    heap[i] = variable;
+    indices[variable] = i;
+  }
+
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The brute-force engines, on instances small enough to enumerate.
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BruteForceBenchmark extends EngineState{
+
+  @Param({"generated-10", "generated-10-sat", "random3sat-20", "pigeonhole-4"})
+  public String instance;
+
+  @Param({"bruteForce", "bruteForceUnit", "bruteForceParallel"})
+  public String engine;
+
+  @Setup
+  public void setup() throws Throwable{
+    setup(instance, engine);
+  }
+
+  @Benchmark
+  public long solve() throws Throwable{
+    return run();
+  }
+
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The instance and the engine handle shared by the benchmarks. The solver
+ * reports its results on standard output, which is silenced while the
+ * engines run. Subclasses are the JMH states that hold the parameters.
+ **/
+public abstract class EngineState{
+
+  Object clauses;
+  MethodHandle handle;
+  private PrintStream out;
+
+  protected void setup(String instance, String engineName) throws Throwable{
+    clauses = Instances.load(instance);
+    handle = Engines.engine(engineName, Runtime.getRuntime().availableProcessors());
+    out = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  @TearDown
+  public void restoreOutput(){
+    System.setOut(out);
+  }
+
+  long run() throws Throwable{
+    return (long) handle.invokeExact(Engines.solver(clauses));
+  }
+
+}
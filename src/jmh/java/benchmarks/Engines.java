@@ -0,0 +1,109 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+
+/**
+ * Calls into the solver, whose classes are in the default package and so
+ * cannot be imported here; JMH does not accept benchmarks in the default
+ * package. The method handles are looked up once, and typed with Object in
+ * place of the solver classes.
+ **/
+final class Engines{
+
+  private static final MethodHandle COPY;
+  private static final MethodHandle READ_DIMACS;
+  private static final MethodHandle GENERATE;
+  private static final MethodHandle NEW_SOLVER;
+  private static final Class<?> SOLVER;
+  private static final MethodHandles.Lookup LOOKUP;
+
+  static {
+    try {
+      Class<?> database = Class.forName("ClauseDatabase");
+      SOLVER = Class.forName("Solver");
+      LOOKUP = MethodHandles.lookup();
+      MethodHandles.Lookup databases = MethodHandles.privateLookupIn(database, LOOKUP);
+      COPY = databases.findVirtual(database, "copy", MethodType.methodType(database))
+          .asType(MethodType.methodType(Object.class, Object.class));
+      Class<?> reader = Class.forName("DimacsReader");
+      READ_DIMACS = MethodHandles.privateLookupIn(reader, LOOKUP)
+          .findStatic(reader, "read", MethodType.methodType(database, Path.class))
+          .asType(MethodType.methodType(Object.class, Path.class));
+      Class<?> generator = Class.forName("InstanceGenerator");
+      MethodHandles.Lookup generators = MethodHandles.privateLookupIn(generator, LOOKUP);
+      GENERATE = MethodHandles.filterReturnValue(
+          generators.findStatic(generator, "named", MethodType.methodType(generator, String.class)),
+          generators.findVirtual(generator, "database", MethodType.methodType(database)))
+          .asType(MethodType.methodType(Object.class, String.class));
+      NEW_SOLVER = MethodHandles.privateLookupIn(SOLVER, LOOKUP)
+          .findConstructor(SOLVER, MethodType.methodType(void.class, database))
+          .asType(MethodType.methodType(Object.class, Object.class));
+    } catch (ReflectiveOperationException e){
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private Engines(){
+  }
+
+  /**
+   * @param name the name of the instance, as in InstanceGenerator.named.
+   * @return Object the ClauseDatabase of the generated instance.
+   **/
+  static Object generate(String name) throws Throwable{
+    return (Object) GENERATE.invokeExact(name);
+  }
+
+  /**
+   * @return Object the ClauseDatabase read from the DIMACS file.
+   **/
+  static Object dimacs(Path file) throws Throwable{
+    return (Object) READ_DIMACS.invokeExact(file);
+  }
+
+  /**
+   * Creates a solver on a copy of the clauses, as engines reorder and add
+   * clauses.
+   *
+   * @return Object the Solver.
+   **/
+  static Object solver(Object clauses) throws Throwable{
+    return (Object) NEW_SOLVER.invokeExact((Object) COPY.invokeExact(clauses));
+  }
+
+  /**
+   * Looks up a solver method by name, such as dpll or cdcl. The methods of
+   * the parallel engines take the number of workers.
+   *
+   * @param name the name of the Solver method.
+   * @param workers the number of worker threads for the parallel engines.
+   * @return MethodHandle taking the Solver and returning its result as a long.
+   **/
+  static MethodHandle engine(String name, int workers) throws ReflectiveOperationException{
+    MethodHandles.Lookup solvers = MethodHandles.privateLookupIn(SOLVER, LOOKUP);
+    MethodHandle engine;
+    switch (name){
+      case "bruteForce":
+      case "bruteForceUnit":
+      case "bruteForceParallel":
+        engine = solvers.findVirtual(SOLVER, name, MethodType.methodType(long.class));
+        break;
+      case "dpll":
+      case "cdcl":
+        engine = solvers.findVirtual(SOLVER, name, MethodType.methodType(int.class));
+        break;
+      case "cdclPortfolio":
+      case "cubeAndConquer":
+        engine = solvers.findVirtual(SOLVER, name, MethodType.methodType(int.class, int.class));
+        engine = MethodHandles.insertArguments(engine, 1, workers);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + name);
+    }
+    return engine.asType(MethodType.methodType(long.class, Object.class));
+  }
+
+}
@@ -0,0 +1,28 @@
+package benchmarks;
+
+import java.nio.file.Paths;
+
+/**
+ * The instances the engines are benchmarked on. Names are those of
+ * InstanceGenerator.named, such as random3sat-100 for random 3-SAT at the
+ * phase transition, pigeonhole-6, parity-20 or generated-10 for the formula
+ * Main generates for an integer argument. dimacs:file names the clauses of
+ * a DIMACS CNF file.
+ **/
+final class Instances{
+
+  private Instances(){
+  }
+
+  /**
+   * @param name the name of the instance.
+   * @return Object the ClauseDatabase of the instance.
+   **/
+  static Object load(String name) throws Throwable{
+    if (name.startsWith("dimacs:")){
+      return Engines.dimacs(Paths.get(name.substring("dimacs:".length())));
+    }
+    return Engines.generate(name);
+  }
+
+}
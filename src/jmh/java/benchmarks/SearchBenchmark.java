@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The search engines. DIMACS files are benchmarked with -p instance=dimacs:file.
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark extends EngineState{
+
+  @Param({"random3sat-50", "random3sat-100", "pigeonhole-6", "parity-10", "generated-12"})
+  public String instance;
+
+  @Param({"dpll", "cdcl", "cdclPortfolio", "cubeAndConquer"})
+  public String engine;
+
+  @Setup
+  public void setup() throws Throwable{
+    setup(instance, engine);
+  }
+
+  @Benchmark
+  public long solve() throws Throwable{
+    return run();
+  }
+
+}
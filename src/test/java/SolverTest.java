@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class SolverTest{
+
+  private static final int VARIABLES = 60;
+  private static final int CLAUSES = 250;
+
+  // Random 3-SAT clauses over VARIABLES variables, named 1 to VARIABLES by the solver.
+  private static ClauseDatabase random(long seed){
+    Random random = new Random(seed);
+    ClauseDatabase clauses = new ClauseDatabase();
+    for (int c = 0; c < CLAUSES; c++){
+      int[] clause = new int[3];
+      for (int i = 0; i < clause.length; i++){
+        clause[i] = ClauseDatabase.literal(random.nextInt(VARIABLES), random.nextBoolean());
+      }
+      clauses.addClause(clause);
+    }
+    return clauses;
+  }
+
+  private static String[] assumptions(Random random){
+    String[] assumptions = new String[5 + random.nextInt(10)];
+    for (int i = 0; i < assumptions.length; i++){
+      assumptions[i] = (random.nextBoolean() ? "-" : "") + (1 + random.nextInt(VARIABLES));
+    }
+    return assumptions;
+  }
+
+  // True if every clause has a literal in the model.
+  private static boolean satisfies(ClauseDatabase clauses, List<String> model){
+    Set<String> literals = new HashSet<>(model);
+    for (int c = 0; c < clauses.size(); c++){
+      boolean satisfied = false;
+      for (int i = 0; i < clauses.length(c) && !satisfied; i++){
+        int literal = clauses.literal(c, i);
+        String name = Integer.toString(ClauseDatabase.variable(literal) + 1);
+        satisfied = literals.contains(ClauseDatabase.isNegated(literal) ? "-" + name : name);
+      }
+      if (!satisfied){
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Test
+  void answersRepeatedQueriesLikeFreshSolvers(){
+    Random random = new Random(1);
+    int unsatisfiable = 0;
+    for (long seed = 0; seed < 8; seed++){
+      ClauseDatabase clauses = random(seed);
+      Solver solver = new Solver(clauses);
+      for (int query = 0; query < 32; query++){
+        String[] assumptions = assumptions(random);
+        int result = solver.solve(assumptions);
+        assertEquals(new Solver(clauses).solve(assumptions), result);
+        if (result == CdclEngine.SATISFIABLE){
+          assertTrue(solver.model().containsAll(List.of(assumptions)));
+          assertTrue(satisfies(clauses, solver.model()));
+          assertTrue(solver.failedAssumptions().isEmpty());
+        } else {
+          unsatisfiable++;
+          assertNull(solver.model());
+          List<String> failed = solver.failedAssumptions();
+          assertTrue(List.of(assumptions).containsAll(failed));
+          assertEquals(CdclEngine.UNSATISFIABLE, new Solver(clauses).solve(failed.toArray(new String[0])));
+        }
+      }
+    }
+    assertTrue(unsatisfiable > 0);
+  }
+
+  @Test
+  void addedClausesHoldInLaterQueries(){
+    ClauseDatabase clauses = random(42);
+    Solver solver = new Solver(clauses);
+    assertEquals(CdclEngine.SATISFIABLE, solver.solve());
+    solver.addClause("-1", "x");
+    solver.addClause("-x", "2");
+    assertEquals(CdclEngine.SATISFIABLE, solver.solve("1"));
+    assertTrue(solver.model().containsAll(List.of("1", "x", "2")));
+    assertEquals(CdclEngine.UNSATISFIABLE, solver.solve("1", "-2"));
+    assertTrue(List.of("1", "-2").containsAll(solver.failedAssumptions()));
+    assertFalse(solver.failedAssumptions().isEmpty());
+
+    // The clauses given to the solver are left as they were.
+    assertEquals(CLAUSES, clauses.size());
+    assertEquals(VARIABLES, clauses.variables());
+  }
+
+  @Test
+  void unsatisfiableClausesFailWithoutAssumptions(){
+    Solver solver = new Solver(random(7));
+    solver.addClause("y");
+    solver.addClause("-y");
+    assertEquals(CdclEngine.UNSATISFIABLE, solver.solve("1", "2"));
+    assertTrue(solver.failedAssumptions().isEmpty());
+  }
+
+  @Test
+  void rejectsUnknownAssumptions(){
+    Solver solver = new Solver(random(3));
+    assertThrows(IllegalArgumentException.class, () -> solver.solve("z"));
+    assertThrows(IllegalArgumentException.class, () -> solver.addClause("-"));
+  }
+
+  @Test
+  void rejectsQueriesAfterPreprocessing(){
+    Solver solver = new Solver(random(5));
+    solver.preprocess();
+    assertThrows(IllegalStateException.class, () -> solver.solve("1"));
+    assertThrows(IllegalStateException.class, () -> solver.addClause("1", "2"));
+  }
+
+  @Test
+  void formulasAreSolvedByName(){
+    Solver solver = new Solver(new PropositionalFormula("(a or b) and (not a or c)"));
+    assertEquals(CdclEngine.SATISFIABLE, solver.solve("a"));
+    assertTrue(solver.model().containsAll(List.of("a", "c")));
+    assertEquals(CdclEngine.UNSATISFIABLE, solver.solve("a", "-c"));
+    assertEquals(new HashSet<>(List.of("a", "-c")), new HashSet<>(solver.failedAssumptions()));
+  }
+
+}